@@ -0,0 +1,197 @@
+package com.github.glowlux.driftjme.example;
+
+import com.github.glowlux.driftjme.SimpleFXApplication;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.light.AmbientLight;
+import com.jme3.light.DirectionalLight;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.post.FilterPostProcessor;
+import com.jme3.post.filters.BloomFilter;
+import com.jme3.post.filters.DepthOfFieldFilter;
+import com.jme3.post.filters.FXAAFilter;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.AppSettings;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.Stage;
+import org.eclipse.fx.drift.DriftFXSurface;
+
+import java.util.Arrays;
+
+/**
+ * Measures the cost of a post-processing filter chain when rendering to a {@link DriftFXSurface}, compared to a
+ * standard LWJGL window. Run with {@code lwjgl} as the first argument for the window, anything else for JavaFX.
+ * Both render the same lit scene at the same size without vsync and print frame time statistics when done.
+ *
+ * @author glowlux
+ */
+public class FilterChainBenchmark extends Application {
+
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 2000;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("lwjgl")) {
+            AppSettings settings = new AppSettings(true);
+            settings.setResolution(WIDTH, HEIGHT);
+            settings.setVSync(false);
+            settings.setFrameRate(-1);
+
+            WindowBenchmark app = new WindowBenchmark();
+            app.setSettings(settings);
+            app.setShowSettings(false);
+            app.start();
+        } else {
+            launch(FilterChainBenchmark.class, args);
+        }
+    }
+
+    @Override
+    public void start(Stage stage) {
+        DriftFXSurface surface = new DriftFXSurface();
+
+        BorderPane borderPane = new BorderPane();
+        borderPane.setPrefSize(WIDTH, HEIGHT);
+        borderPane.setCenter(surface);
+
+        stage.setScene(new Scene(borderPane));
+        stage.show();
+
+        new Thread(() -> {
+            SurfaceBenchmark app = new SurfaceBenchmark(surface, stage);
+            app.setShowSettings(false);
+            app.start();
+            Platform.exit();
+        }).start();
+    }
+
+    /**
+     * Build the benchmark scene and filter chain, shared by both variants.
+     */
+    private static void setUpScene(SimpleApplication app, String label) {
+        app.getFlyByCamera().setEnabled(false);
+        app.setDisplayStatView(false);
+        app.setDisplayFps(false);
+
+        app.getCamera().setLocation(new Vector3f(0, 12, 30));
+        app.getCamera().lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        Material mat = new Material(app.getAssetManager(), "Common/MatDefs/Light/Lighting.j3md");
+        mat.setBoolean("UseMaterialColors", true);
+        mat.setColor("Diffuse", ColorRGBA.Orange);
+        mat.setColor("Ambient", ColorRGBA.Orange);
+        mat.setColor("Specular", ColorRGBA.White);
+        mat.setFloat("Shininess", 32f);
+
+        Box box = new Box(0.4f, 0.4f, 0.4f);
+        for (int x = -10; x <= 10; x++) {
+            for (int z = -10; z <= 10; z++) {
+                Geometry geom = new Geometry("Box", box);
+                geom.setMaterial(mat);
+                geom.setLocalTranslation(x, 0, z);
+                app.getRootNode().attachChild(geom);
+            }
+        }
+
+        app.getRootNode().addLight(new DirectionalLight(new Vector3f(-1, -2, -1).normalizeLocal()));
+        app.getRootNode().addLight(new AmbientLight(ColorRGBA.DarkGray));
+
+        FilterPostProcessor fpp = new FilterPostProcessor(app.getAssetManager());
+        fpp.addFilter(new BloomFilter(BloomFilter.GlowMode.Scene));
+        fpp.addFilter(new DepthOfFieldFilter());
+        fpp.addFilter(new FXAAFilter());
+        app.getViewPort().addProcessor(fpp);
+
+        app.getStateManager().attach(new FrameTimeRecorder(label));
+    }
+
+    /**
+     * Records frame times after a warmup period and prints them.
+     */
+    private static final class FrameTimeRecorder extends AbstractAppState {
+
+        private final String label;
+        private final long[] frameNanos = new long[MEASURED_FRAMES];
+        private int frame = -WARMUP_FRAMES;
+        private long last;
+
+        FrameTimeRecorder(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void update(float tpf) {
+            long now = System.nanoTime();
+            if (frame >= 0 && frame < MEASURED_FRAMES) {
+                frameNanos[frame] = now - last;
+            }
+            last = now;
+            frame++;
+
+            if (frame == MEASURED_FRAMES) {
+                report();
+            }
+        }
+
+        private void report() {
+            long[] sorted = frameNanos.clone();
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long nanos : sorted) total += nanos;
+
+            System.out.printf("%s: %d frames, avg %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    label, MEASURED_FRAMES,
+                    total / (double) MEASURED_FRAMES / 1e6,
+                    sorted[MEASURED_FRAMES / 2] / 1e6,
+                    sorted[(int) (MEASURED_FRAMES * 0.99)] / 1e6,
+                    sorted[MEASURED_FRAMES - 1] / 1e6);
+        }
+    }
+
+    public static class WindowBenchmark extends SimpleApplication {
+
+        @Override
+        public void simpleInitApp() {
+            setUpScene(this, "LWJGL window");
+            stateManager.attach(new StopAfterMeasurement(this));
+        }
+    }
+
+    public static class SurfaceBenchmark extends SimpleFXApplication {
+
+        public SurfaceBenchmark(DriftFXSurface surface, Stage stage) {
+            super(surface, stage, true, false);
+        }
+
+        @Override
+        public void simpleInitApp() {
+            setUpScene(this, "DriftFX surface");
+            stateManager.attach(new StopAfterMeasurement(this));
+        }
+    }
+
+    private static final class StopAfterMeasurement extends AbstractAppState {
+
+        private final SimpleApplication app;
+        private int frames;
+
+        StopAfterMeasurement(SimpleApplication app) {
+            this.app = app;
+        }
+
+        @Override
+        public void update(float tpf) {
+            if (++frames > WARMUP_FRAMES + MEASURED_FRAMES) {
+                app.stop();
+            }
+        }
+    }
+}
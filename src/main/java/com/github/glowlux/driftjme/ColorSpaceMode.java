@@ -0,0 +1,22 @@
+package com.github.glowlux.driftjme;
+
+/**
+ * The colour space JME writes to the surface in.
+ *
+ * @author glowlux
+ */
+public enum ColorSpaceMode {
+    /**
+     * sRGB if {@code AppSettings.isGammaCorrection()} is set, linear otherwise.
+     */
+    AUTO,
+    /**
+     * Shaders write values straight to the surface and sRGB textures are sampled as is.
+     */
+    LINEAR,
+    /**
+     * Shaders work in linear space, sRGB textures are linearized when sampled and the hardware encodes to sRGB when
+     * writing to the surface ({@code GL_FRAMEBUFFER_SRGB}), so no gamma correction filter pass is needed.
+     */
+    SRGB
+}
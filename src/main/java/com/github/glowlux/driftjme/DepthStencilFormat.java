@@ -0,0 +1,74 @@
+package com.github.glowlux.driftjme;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT16;
+import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT24;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Depth and stencil formats for the framebuffer JME renders into.
+ *
+ * @author glowlux
+ */
+public enum DepthStencilFormat {
+
+    NONE(0, 0, 0, 0, 0, 0),
+    DEPTH16(GL_DEPTH_COMPONENT16, GL_DEPTH_ATTACHMENT, GL_DEPTH_COMPONENT, GL_UNSIGNED_SHORT, 16, 0),
+    DEPTH24(GL_DEPTH_COMPONENT24, GL_DEPTH_ATTACHMENT, GL_DEPTH_COMPONENT, GL_UNSIGNED_INT, 24, 0),
+    DEPTH32F(GL_DEPTH_COMPONENT32F, GL_DEPTH_ATTACHMENT, GL_DEPTH_COMPONENT, GL_FLOAT, 32, 0),
+    DEPTH24_STENCIL8(GL_DEPTH24_STENCIL8, GL_DEPTH_STENCIL_ATTACHMENT, GL_DEPTH_STENCIL, GL_UNSIGNED_INT_24_8, 24, 8),
+    DEPTH32F_STENCIL8(GL_DEPTH32F_STENCIL8, GL_DEPTH_STENCIL_ATTACHMENT, GL_DEPTH_STENCIL, GL_FLOAT_32_UNSIGNED_INT_24_8_REV, 32, 8);
+
+    final int internalFormat;
+    final int attachment;
+    final int pixelFormat;
+    final int pixelType;
+    private final int depthBits;
+    private final int stencilBits;
+
+    DepthStencilFormat(int internalFormat, int attachment, int pixelFormat, int pixelType, int depthBits, int stencilBits) {
+        this.internalFormat = internalFormat;
+        this.attachment = attachment;
+        this.pixelFormat = pixelFormat;
+        this.pixelType = pixelType;
+        this.depthBits = depthBits;
+        this.stencilBits = stencilBits;
+    }
+
+    public int getDepthBits() {
+        return depthBits;
+    }
+
+    public int getStencilBits() {
+        return stencilBits;
+    }
+
+    /**
+     * @return an estimate of the bytes used per pixel, drivers typically pad 24 bit depth to 32 bits.
+     */
+    public int getBytesPerPixel() {
+        switch (this) {
+            case NONE: return 0;
+            case DEPTH16: return 2;
+            case DEPTH32F_STENCIL8: return 8;
+            default: return 4;
+        }
+    }
+
+    /**
+     * Pick the smallest format that satisfies the requested bits, as with {@code AppSettings.getDepthBits()} and
+     * {@code AppSettings.getStencilBits()}.
+     * @param depthBits the requested depth bits, 0 for no depth buffer.
+     * @param stencilBits the requested stencil bits, 0 for no stencil buffer.
+     * @return the matching format.
+     */
+    public static DepthStencilFormat fromBits(int depthBits, int stencilBits) {
+        if (stencilBits > 0) {
+            return depthBits > 24 ? DEPTH32F_STENCIL8 : DEPTH24_STENCIL8;
+        }
+        if (depthBits <= 0) return NONE;
+        if (depthBits <= 16) return DEPTH16;
+        if (depthBits <= 24) return DEPTH24;
+        return DEPTH32F;
+    }
+}
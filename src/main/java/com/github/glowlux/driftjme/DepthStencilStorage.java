@@ -0,0 +1,17 @@
+package com.github.glowlux.driftjme;
+
+/**
+ * How the depth/stencil attachment of the framebuffer JME renders into is stored.
+ *
+ * @author glowlux
+ */
+public enum DepthStencilStorage {
+    /**
+     * A renderbuffer, cheapest when the depth is never sampled.
+     */
+    RENDERBUFFER,
+    /**
+     * A texture, required by effects that read the depth buffer. See {@link FXContext#getDepthTexture()}.
+     */
+    TEXTURE
+}
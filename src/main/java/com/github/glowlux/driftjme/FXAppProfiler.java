@@ -0,0 +1,52 @@
+package com.github.glowlux.driftjme;
+
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.AppStep;
+import com.jme3.profile.SpStep;
+import com.jme3.profile.VpStep;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+
+/**
+ * Profiler installed by {@link SimpleFXApplication} to hook per-viewport GPU timing into the render manager.
+ * Any profiler that was already set on the application keeps receiving every step.
+ *
+ * @author glowlux
+ */
+final class FXAppProfiler implements AppProfiler {
+
+    private final GpuTimer gpuTimer;
+    private final AppProfiler delegate;
+
+    FXAppProfiler(GpuTimer gpuTimer, AppProfiler delegate) {
+        this.gpuTimer = gpuTimer;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void appStep(AppStep step) {
+        if (delegate != null) delegate.appStep(step);
+    }
+
+    @Override
+    public void appSubStep(String... additionalInfo) {
+        if (delegate != null) delegate.appSubStep(additionalInfo);
+    }
+
+    @Override
+    public void vpStep(VpStep step, ViewPort vp, Bucket bucket) {
+        if (gpuTimer.isRecording()) {
+            if (step == VpStep.BeginRender) {
+                gpuTimer.beginViewport(vp);
+            } else if (step == VpStep.EndRender) {
+                gpuTimer.endViewport(vp);
+            }
+        }
+        if (delegate != null) delegate.vpStep(step, vp, bucket);
+    }
+
+    @Override
+    public void spStep(SpStep step, String... additionalInfo) {
+        if (delegate != null) delegate.spStep(step, additionalInfo);
+    }
+}
@@ -37,15 +37,25 @@ package com.github.glowlux.driftjme;
 
 import com.github.glowlux.driftjme.input.FXKeyInput;
 import com.github.glowlux.driftjme.input.FXMouseInput;
+import com.github.glowlux.driftjme.input.FXTouchInput;
+import com.github.glowlux.driftjme.input.InputReplay;
+import com.github.glowlux.driftjme.jfr.ContextEvent;
+import com.github.glowlux.driftjme.jfr.FrameEvent;
+import com.github.glowlux.driftjme.jfr.SwapchainEvent;
+import com.jme3.app.Application;
+import com.jme3.app.StatsAppState;
+import com.jme3.app.StatsView;
 import com.jme3.input.JoyInput;
 import com.jme3.input.KeyInput;
 import com.jme3.input.MouseInput;
 import com.jme3.input.TouchInput;
 import com.jme3.lwjgl3.utils.APIUtil;
+import com.jme3.renderer.Statistics;
 import com.jme3.system.AppSettings;
 import com.jme3.system.JmeSystem;
 import com.jme3.system.NanoTimer;
 import com.jme3.system.lwjgl.LwjglContext;
+import com.jme3.texture.Texture2D;
 import javafx.application.Platform;
 import javafx.stage.Stage;
 import org.eclipse.fx.drift.*;
@@ -53,15 +63,16 @@ import org.lwjgl.Version;
 import org.lwjgl.opengl.GLUtil;
 import org.lwjgl.system.Callback;
 
-import java.nio.ByteBuffer;
 import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL30.*;
-import static org.lwjgl.opengl.GL32.glFramebufferTexture;
+import static org.lwjgl.opengl.GL11.GL_NO_ERROR;
+import static org.lwjgl.opengl.GL11.glGetError;
+import static org.lwjgl.opengl.GL11.glViewport;
 
 /**
  * A context that renders to a {@link DriftFXSurface}, thus embedding JME in JavaFX.
@@ -72,27 +83,64 @@ public class FXContext extends LwjglContext implements Runnable {
 
     private static final Logger LOGGER = Logger.getLogger(FXContext.class.getName());
 
-    private int width = 1024;
-    private int height = 768;
+    private volatile int width = 1024;
+    private volatile int height = 768;
 
     private final DriftFXSurface surface;
     private final Stage stage;
 
     private Swapchain swapChain;
+    private SurfaceFramebuffer framebuffer;
     private Renderer fxRenderer;
-    private TransferType txType;
+    private volatile TransferType txType;
+    private volatile PresentationMode presentationMode = PresentationMode.MAILBOX;
+    private volatile int swapchainImageCount = 2;
     private long ctx;
     private Callback debugProc;
-    private Thread mainThread;
+    private volatile Thread mainThread;
 
     private final AtomicBoolean isCreated = new AtomicBoolean(false);
     private final AtomicBoolean shouldClose = new AtomicBoolean(false);
 
     private final FXMouseInput mouseInput;
     private final FXKeyInput keyInput;
+    private final FXTouchInput touchInput;
+    private volatile InputReplay inputReplay;
 
     private final boolean disableDebugOutput;
 
+    private static final long MAX_SUSPEND_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // upper bound so a close request is never missed.
+
+    private final SurfaceVisibilityTracker visibilityTracker;
+    private volatile boolean suspendWhenHidden = true;
+    private volatile float hiddenUpdateRate = 0f;
+    private volatile boolean suspended = false;
+    private long lastHiddenUpdate;
+
+    private volatile DepthStencilFormat depthStencilFormat; // null = derive from settings
+    private volatile DepthStencilStorage depthStencilStorage = DepthStencilStorage.RENDERBUFFER;
+    private volatile ColorSpaceMode colorSpaceMode = ColorSpaceMode.AUTO;
+
+    private final GpuResourceTracker resources = new GpuResourceTracker();
+    private final GpuResourceTracker.Scope contextScope = resources.openScope("context");
+    private GpuResourceTracker.Scope swapchainScope;
+    private GpuResourceTracker.Allocation swapchainAllocation;
+
+    private final FrameTimings frameTimings = new FrameTimings();
+    private final GpuTimer gpuTimer = new GpuTimer(frameTimings, resources, contextScope);
+    private final InputLatencyTracker inputLatency = new InputLatencyTracker();
+    private final FixedTimestep fixedTimestep = new FixedTimestep();
+    private final StallWatchdog watchdog = new StallWatchdog();
+
+    private final PulseClock pulseClock = new PulseClock();
+    private volatile boolean pulseLocked = false;
+    private long expectedFrameNanos; // render thread only, quick to rise and slow to fall.
+
+    private final RenderScheduler scheduler = RenderScheduler.getDefault();
+    private volatile RenderScheduler.View schedulerView;
+    private volatile int renderPriority = 0;
+    private volatile float targetFrameRate = 0f;
+
     public FXContext(DriftFXSurface surface, Stage stage, boolean disableDebugOutput, boolean forceMainMemoryTransfer) {
         this.surface = surface;
         this.stage = stage;
@@ -106,6 +154,270 @@ public class FXContext extends LwjglContext implements Runnable {
         mouseInput = new FXMouseInput(this, stage, surface);
         mouseInput.setCurrentHeight(height);
         keyInput = new FXKeyInput(this, stage, surface);
+        touchInput = new FXTouchInput(this, surface);
+        touchInput.setCurrentHeight(height);
+
+        visibilityTracker = new SurfaceVisibilityTracker(surface, this::wakeRenderThread);
+        Platform.runLater(visibilityTracker::install);
+    }
+
+    /**
+     * Suspend rendering while the surface is hidden, i.e. its stage is iconified, it sits in an unselected tab,
+     * it is detached from the scene or it has a zero size. The swapchain is released while suspended and
+     * recreated on resume. Enabled by default.
+     * @param suspendWhenHidden true to suspend rendering while hidden.
+     */
+    public void setSuspendWhenHidden(boolean suspendWhenHidden) {
+        this.suspendWhenHidden = suspendWhenHidden;
+        wakeRenderThread();
+    }
+
+    public boolean isSuspendWhenHidden() {
+        return suspendWhenHidden;
+    }
+
+    /**
+     * Set the rate at which the application keeps updating (app states, enqueued tasks) while rendering is suspended.
+     * Main viewports are not rendered during these updates, see {@link #isRenderable()}.
+     * @param hiddenUpdateRate updates per second while hidden, 0 (the default) stops updates completely.
+     */
+    public void setHiddenUpdateRate(float hiddenUpdateRate) {
+        this.hiddenUpdateRate = Math.max(0f, hiddenUpdateRate);
+        wakeRenderThread();
+    }
+
+    public float getHiddenUpdateRate() {
+        return hiddenUpdateRate;
+    }
+
+    /**
+     * @return true if rendering is currently suspended because the surface is hidden.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * @return false while rendering is suspended, so jME skips the main viewports during hidden updates.
+     */
+    @Override
+    public boolean isRenderable() {
+        return !suspended;
+    }
+
+    private void wakeRenderThread() {
+        Thread thread = mainThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Set the depth/stencil attachment of the framebuffer JME renders into. Can be changed at any time, the
+     * framebuffer is rebuilt before the next frame.
+     * @param depthStencilFormat the format, or null (the default) to derive it from
+     *                           {@link AppSettings#getDepthBits()} and {@link AppSettings#getStencilBits()}.
+     */
+    public void setDepthStencilFormat(DepthStencilFormat depthStencilFormat) {
+        this.depthStencilFormat = depthStencilFormat;
+    }
+
+    /**
+     * @return the depth/stencil format in use, either the one set explicitly or the one derived from the settings.
+     */
+    public DepthStencilFormat getDepthStencilFormat() {
+        DepthStencilFormat format = depthStencilFormat;
+        if (format != null) return format;
+        return settings == null ? DepthStencilFormat.DEPTH24 : DepthStencilFormat.fromBits(settings.getDepthBits(), settings.getStencilBits());
+    }
+
+    /**
+     * Set whether the depth/stencil attachment is a renderbuffer (the default) or a texture.
+     * Use a texture only if something needs to sample it.
+     * @param depthStencilStorage the storage type.
+     */
+    public void setDepthStencilStorage(DepthStencilStorage depthStencilStorage) {
+        if (depthStencilStorage == null) throw new IllegalArgumentException("depthStencilStorage cannot be null");
+        this.depthStencilStorage = depthStencilStorage;
+    }
+
+    public DepthStencilStorage getDepthStencilStorage() {
+        return depthStencilStorage;
+    }
+
+    /**
+     * Get the depth/stencil attachment as a texture materials can sample, when the storage is
+     * {@link DepthStencilStorage#TEXTURE}. The texture is replaced whenever the framebuffer is rebuilt, e.g. on a resize,
+     * so fetch it each frame rather than keeping it. Sample it only from passes that render into another framebuffer.
+     * Must be called on the render thread.
+     * @return the depth texture, or null if the depth attachment isn't a texture or hasn't been created yet.
+     */
+    public Texture2D getDepthTexture() {
+        SurfaceFramebuffer current = framebuffer;
+        return current == null ? null : current.getJmeDepthTexture();
+    }
+
+    /**
+     * Set the colour space JME renders to the surface in. With sRGB output the hardware converts to sRGB when writing,
+     * replacing a gamma correction filter pass. Textures are only uploaded as sRGB or linear according to the mode
+     * in use when they are first uploaded, so set this before loading assets.
+     * @param colorSpaceMode the colour space mode, {@link ColorSpaceMode#AUTO} by default.
+     */
+    public void setColorSpaceMode(ColorSpaceMode colorSpaceMode) {
+        if (colorSpaceMode == null) throw new IllegalArgumentException("colorSpaceMode cannot be null");
+        this.colorSpaceMode = colorSpaceMode;
+    }
+
+    public ColorSpaceMode getColorSpaceMode() {
+        return colorSpaceMode;
+    }
+
+    /**
+     * @return true if JME output is encoded to sRGB, resolving {@link ColorSpaceMode#AUTO} against the settings.
+     */
+    public boolean isSrgbOutput() {
+        switch (colorSpaceMode) {
+            case SRGB: return true;
+            case LINEAR: return false;
+            default: return settings != null && settings.isGammaCorrection();
+        }
+    }
+
+    /**
+     * Enable GPU timing of each frame and, when running a {@link SimpleFXApplication}, each viewport.
+     * Results are read back a few frames later without stalling and published in {@link #getFrameTimings()}.
+     * Disabled by default, in which case it costs nothing.
+     * @param enabled true to enable GPU timing.
+     */
+    public void setGpuTimingEnabled(boolean enabled) {
+        gpuTimer.setEnabled(enabled);
+    }
+
+    public boolean isGpuTimingEnabled() {
+        return gpuTimer.isEnabled();
+    }
+
+    /**
+     * @return CPU phase timings of the last frame, and GPU timings if enabled.
+     */
+    public FrameTimings getFrameTimings() {
+        return frameTimings;
+    }
+
+    /**
+     * @return the width of the surface in pixels, as of the last frame.
+     */
+    public int getSurfaceWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the surface in pixels, as of the last frame.
+     */
+    public int getSurfaceHeight() {
+        return height;
+    }
+
+    public TransferType getTransferType() {
+        return txType;
+    }
+
+    public PresentationMode getPresentationMode() {
+        return presentationMode;
+    }
+
+    public int getSwapchainImageCount() {
+        return swapchainImageCount;
+    }
+
+    /**
+     * @return capture to dispatch and capture to present latency histograms of keyboard and mouse input.
+     */
+    public InputLatencyTracker getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Produce one frame per JavaFX pulse, timed to be presented just before the pulse that composites it, instead
+     * of rendering as fast as possible. Saves the work of frames JavaFX would never show and keeps the age of shown
+     * frames even. The pulse rate is measured, so this follows the refresh rate JavaFX actually runs at.
+     * @param pulseLocked true to lock frame production to the pulse.
+     */
+    public void setPulseLocked(boolean pulseLocked) {
+        this.pulseLocked = pulseLocked;
+        wakeRenderThread();
+    }
+
+    public boolean isPulseLocked() {
+        return pulseLocked;
+    }
+
+    /**
+     * @return the measured JavaFX pulse rate in Hz, only measured while pulse locked.
+     */
+    public double getPulseRate() {
+        return pulseClock.getPulseRate();
+    }
+
+    /**
+     * @return the number of pulses that went by without a new frame while pulse locked.
+     */
+    public long getMissedPulses() {
+        return pulseClock.getMissedPulses();
+    }
+
+    /**
+     * Set the priority of this context in the {@link RenderScheduler}, higher priorities get their share of the
+     * frame budget first.
+     * @param renderPriority the priority, 0 by default.
+     */
+    public void setRenderPriority(int renderPriority) {
+        this.renderPriority = renderPriority;
+        configureSchedulerView();
+    }
+
+    public int getRenderPriority() {
+        return renderPriority;
+    }
+
+    /**
+     * Set the frame rate this context asks the {@link RenderScheduler} for. Without a target rate a context takes
+     * all the budget left at its priority, so contexts of lower priority are slowed to the minimum frame rate.
+     * @param targetFrameRate frames per second, 0 (the default) for as fast as the frame budget allows.
+     */
+    public void setTargetFrameRate(float targetFrameRate) {
+        this.targetFrameRate = Math.max(0f, targetFrameRate);
+        configureSchedulerView();
+    }
+
+    public float getTargetFrameRate() {
+        return targetFrameRate;
+    }
+
+    /**
+     * @return this context's entry in the {@link RenderScheduler}, null while the context isn't running.
+     */
+    public RenderScheduler.View getSchedulerView() {
+        return schedulerView;
+    }
+
+    private void configureSchedulerView() {
+        RenderScheduler.View view = schedulerView;
+        if (view != null) scheduler.configure(view, renderPriority, targetFrameRate);
+        wakeRenderThread();
+    }
+
+    /**
+     * @return the accounting of GPU resources allocated by this context.
+     */
+    public GpuResourceTracker getResourceTracker() {
+        return resources;
+    }
+
+    GpuTimer getGpuTimer() {
+        return gpuTimer;
+    }
+
+    private boolean shouldSuspend() {
+        return suspendWhenHidden && !visibilityTracker.isVisible();
     }
 
     @Override
@@ -119,14 +431,44 @@ public class FXContext extends LwjglContext implements Runnable {
         return Type.OffscreenSurface;
     }
 
+    /**
+     * @return the fixed logic timestep, advanced before every application update. Set a step rate on it to run
+     * {@link com.github.glowlux.driftjme.util.FixedStepAppState}s at a fixed rate independent of the frame rate.
+     */
+    public FixedTimestep getFixedTimestep() {
+        return fixedTimestep;
+    }
+
+    /**
+     * @return the watchdog that reports render loop stalls and can fall back to another transfer type.
+     */
+    public StallWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    /**
+     * Drive the application from a recording instead of the stage's keyboard and mouse. The application picks its
+     * input devices up when it starts, so this must be called before then.
+     * @param inputReplay the recording to play, or null for live input.
+     */
+    public void setInputReplay(InputReplay inputReplay) {
+        this.inputReplay = inputReplay;
+    }
+
+    public InputReplay getInputReplay() {
+        return inputReplay;
+    }
+
     @Override
     public MouseInput getMouseInput() { //TODO
-        return mouseInput;
+        InputReplay replay = inputReplay;
+        return replay != null ? replay.getMouseInput() : mouseInput;
     }
 
     @Override
     public KeyInput getKeyInput() { //TODO
-        return keyInput;
+        InputReplay replay = inputReplay;
+        return replay != null ? replay.getKeyInput() : keyInput;
     }
 
     @Override
@@ -135,8 +477,8 @@ public class FXContext extends LwjglContext implements Runnable {
     }
 
     @Override
-    public TouchInput getTouchInput() { // TODO
-        return null;
+    public TouchInput getTouchInput() {
+        return touchInput;
     }
 
     @Override
@@ -163,6 +505,7 @@ public class FXContext extends LwjglContext implements Runnable {
     @Override
     public void destroy(boolean waitFor) {
         shouldClose.set(true);
+        wakeRenderThread();
         // waitFor is ignored!
     }
 
@@ -178,72 +521,244 @@ public class FXContext extends LwjglContext implements Runnable {
     }
 
     private void destroyContext() {
-        swapChain.dispose();
-        swapChain = null;
+        pulseClock.setRunning(false);
+        disposeSwapchain();
+        Platform.runLater(visibilityTracker::dispose);
+    }
+
+    /**
+     * Loop used while the surface is hidden, releases the swapchain and optionally keeps updating at a reduced rate.
+     */
+    private void suspendedLoop() {
+        if (!suspended) {
+            suspended = true;
+            LOGGER.fine("Surface hidden, suspending rendering.");
+            pulseClock.setRunning(false);
+            scheduler.setActive(schedulerView, false);
+            watchdog.enter(StallWatchdog.Phase.SWAPCHAIN);
+            disposeSwapchain();
+            watchdog.enter(StallWatchdog.Phase.IDLE);
+            lastHiddenUpdate = System.nanoTime();
+        }
+
+        float rate = hiddenUpdateRate;
+        if (rate <= 0f) {
+            LockSupport.parkNanos(this, MAX_SUSPEND_PARK_NANOS);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long wait = lastHiddenUpdate + (long) (TimeUnit.SECONDS.toNanos(1) / rate) - now;
+        if (wait > 0) {
+            LockSupport.parkNanos(this, Math.min(wait, MAX_SUSPEND_PARK_NANOS));
+            return;
+        }
+        lastHiddenUpdate = now;
+
+        if (renderer != null) {
+            renderer.postFrame();
+        }
+        fixedTimestep.advance(now);
+        watchdog.enter(StallWatchdog.Phase.UPDATE);
+        listener.update();
+        watchdog.enter(StallWatchdog.Phase.IDLE);
+        inputLatency.discardPending(); // nothing is presented while hidden.
     }
 
     /**
      * Run main loop.
      */
     private void runLoop() {
+        if (suspended) {
+            suspended = false;
+            timer.reset(); // don't hand the app the whole hidden period as a single tpf.
+            fixedTimestep.reset();
+            scheduler.setActive(schedulerView, true);
+            LOGGER.fine("Surface visible, resuming rendering.");
+        }
+
         Vec2i size = fxRenderer.getSize();
+        if (size.x <= 0 || size.y <= 0) {
+            LockSupport.parkNanos(this, MAX_SUSPEND_PARK_NANOS);
+            return;
+        }
 
         if (swapChain == null || size.x != width || size.y != height) {
-            System.err.println("(re)create swapchain");
-            if (swapChain != null) {
-                swapChain.dispose();
-            }
-
-            swapChain = fxRenderer.createSwapchain(new SwapchainConfig(size, 2, PresentationMode.MAILBOX, txType));
+            LOGGER.fine("(re)create swapchain");
+            watchdog.enter(StallWatchdog.Phase.SWAPCHAIN);
+            disposeSwapchain();
+
+            SwapchainEvent swapchainEvent = new SwapchainEvent();
+            swapchainEvent.begin();
+            swapChain = fxRenderer.createSwapchain(new SwapchainConfig(size, swapchainImageCount, presentationMode, txType));
+            swapchainScope = resources.openScope("swapchain");
+            swapchainAllocation = resources.allocate(swapchainScope, GpuResourceTracker.Category.SWAPCHAIN_IMAGE,
+                    swapchainImageCount, (long) size.x * size.y * 4 * swapchainImageCount); // RGBA8 images.
+            swapchainEvent.record(SwapchainEvent.CREATE, size.x, size.y, swapchainImageCount, presentationMode, txType);
 
             width = size.x;
             height = size.y;
             listener.reshape(width, height);
             mouseInput.setCurrentHeight(height);
+            touchInput.setCurrentHeight(height);
+            watchdog.enter(StallWatchdog.Phase.IDLE);
         }
 
-        try {
-            RenderTarget target = swapChain.acquire();
-
-            int tex = GLRenderer.getGLTextureId(target);
-            int depthTex = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, depthTex);
-            glTexImage2D(GL_TEXTURE_2D, 0, GL_DEPTH_COMPONENT32F, width, height, 0, GL_DEPTH_COMPONENT, GL_FLOAT, (ByteBuffer)null);
-            glBindTexture(GL_TEXTURE_2D, 0);
-
-            int fb = glGenFramebuffers();
+        DepthStencilFormat depthFormat = getDepthStencilFormat();
+        DepthStencilStorage depthStorage = depthStencilStorage;
+        boolean srgb = isSrgbOutput();
+        if (framebuffer == null || !framebuffer.matches(width, height, depthFormat, depthStorage, srgb)) {
+            disposeFramebuffer();
+            framebuffer = new SurfaceFramebuffer(width, height, depthFormat, depthStorage, srgb, resources, swapchainScope);
+            if (renderer != null) {
+                renderer.invalidateState(); // we touched GL bindings behind the renderer's back.
+                // viewports without an output framebuffer (including the last pass of a FilterPostProcessor) now render straight into the swapchain image.
+                renderer.setMainFrameBufferOverride(framebuffer.getJmeFrameBuffer());
+                renderer.setMainFrameBufferSrgb(srgb);
+                renderer.setLinearizeSrgbImages(srgb);
+            }
+        }
 
+        scheduler.awaitTurn(schedulerView, () -> shouldClose.get() || shouldSuspend());
 
-            glBindFramebuffer(GL_FRAMEBUFFER, fb);
-            glFramebufferTexture(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, tex, 0);
-            glFramebufferTexture(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, depthTex, 0);
+        boolean locked = pulseLocked;
+        pulseClock.setRunning(locked);
+        if (locked) {
+            pulseClock.awaitFrameStart(expectedFrameNanos, () -> shouldClose.get() || !pulseLocked || shouldSuspend());
+        }
 
-            int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
-            switch (status) {
-                case GL_FRAMEBUFFER_COMPLETE: break;
-                case GL_FRAMEBUFFER_INCOMPLETE_ATTACHMENT: System.err.println("INCOMPLETE_ATTACHMENT!"); break;
-            }
+        try {
+            FrameEvent frameEvent = new FrameEvent();
+            frameEvent.begin();
+            long frameStart = System.nanoTime();
+            watchdog.enter(StallWatchdog.Phase.ACQUIRE);
+            RenderTarget target = swapChain.acquire();
+            long acquired = System.nanoTime();
 
+            framebuffer.bind(GLRenderer.getGLTextureId(target));
             glViewport(0, 0, width, height);
 
             // Subclasses just call GLObjectManager clean up objects here
             // it is safe .. for now.
             if (renderer != null) {
+                renderer.setFrameBuffer(null); // resync the renderer's framebuffer cache with the binding above.
                 renderer.postFrame();
             }
 
+            watchdog.enter(StallWatchdog.Phase.UPDATE);
+            gpuTimer.beginFrame();
+            fixedTimestep.advance(acquired);
             listener.update();
+            gpuTimer.endFrame();
+            if (renderer != null) {
+                Statistics statistics = renderer.getStatistics();
+                resources.sampleJmeObjects(statistics);
+                // whoever enabled the statistics, the per frame counts only grow unless cleared once the frame is read.
+                if (statistics.isEnabled() && !isStatsViewClearing()) {
+                    statistics.clearFrame();
+                }
+            }
 
 //            Sync.sync(60) // you could sync to 60 fps here, but the Sync class is often runtime only.
 
-            glBindFramebuffer(GL_FRAMEBUFFER, 0);
-            glDeleteFramebuffers(fb);
-            glDeleteTextures(depthTex);
+            watchdog.enter(StallWatchdog.Phase.FINISH);
+            framebuffer.finish();
+            long updated = System.nanoTime();
 
+            watchdog.enter(StallWatchdog.Phase.PRESENT);
             swapChain.present(target);
+            long presented = System.nanoTime();
+            watchdog.enter(StallWatchdog.Phase.IDLE);
+            if (watchdog.isEnabled()) {
+                int error;
+                for (int i = 0; i < 8 && (error = glGetError()) != GL_NO_ERROR; i++) {
+                    watchdog.glError(error);
+                }
+            }
+            inputLatency.presented(presented);
+            if (locked) {
+                pulseClock.framePresented();
+            }
+            long frameNanos = presented - frameStart;
+            expectedFrameNanos = frameNanos > expectedFrameNanos ? frameNanos : expectedFrameNanos - (expectedFrameNanos - frameNanos) / 16;
+            frameTimings.recordCpu(acquired - frameStart, updated - acquired, System.nanoTime() - updated);
+            long cost = gpuTimer.isEnabled() && frameTimings.getGpuFrameCount() > 0 ? frameTimings.getGpuFrameNanos() : updated - acquired;
+            scheduler.frameFinished(schedulerView, frameStart, cost);
+            frameEvent.record(frameTimings.getFrameCount(), frameTimings.getAcquireNanos(), frameTimings.getUpdateNanos(), frameTimings.getPresentNanos());
+        }
+        catch (InterruptedException e) {
+            watchdog.enter(StallWatchdog.Phase.IDLE);
+            inputLatency.discardPending();
+            if (watchdog.isFallbackRequested()) {
+                LOGGER.fine("Frame abandoned after a stall, falling back to another transfer type.");
+            } else {
+                LOGGER.log(Level.WARNING, "Frame interrupted.", e);
+            }
         }
         catch (Exception e) {
-            e.printStackTrace();
+            watchdog.enter(StallWatchdog.Phase.IDLE);
+            inputLatency.discardPending();
+            LOGGER.log(Level.SEVERE, "Frame failed.", e);
+        }
+    }
+
+    /**
+     * Rebuild the swapchain with the next transfer type after the watchdog has seen a stall.
+     */
+    private void fallBack() {
+        Thread.interrupted(); // the watchdog's interrupt has done its job, don't let it break parking.
+        TransferType next = watchdog.nextTransferType(txType);
+        if (next == null) {
+            LOGGER.warning("Render loop stalled using '" + txType + "' transfer type, with no other to fall back to.");
+            return;
+        }
+        watchdog.fellBack(txType, next);
+        watchdog.enter(StallWatchdog.Phase.SWAPCHAIN);
+        disposeSwapchain();
+        watchdog.enter(StallWatchdog.Phase.IDLE);
+        txType = next; // picked up when the swapchain is recreated next frame.
+    }
+
+    /**
+     * @return true if a displayed {@link StatsAppState} clears the renderer's per frame statistics after reading them.
+     */
+    private boolean isStatsViewClearing() {
+        if (!(listener instanceof Application)) return false;
+        StatsAppState stats = ((Application) listener).getStateManager().getState(StatsAppState.class);
+        if (stats == null || !stats.isEnabled()) return false;
+        StatsView view = stats.getStatsView();
+        return view != null && view.isEnabled();
+    }
+
+    private String describeSwapchain() {
+        return width + "x" + height + ", " + swapchainImageCount + " images, " + presentationMode + ", '" + txType + "' transfer"
+                + (swapChain == null ? " (not created)" : "");
+    }
+
+    private void disposeFramebuffer() {
+        if (framebuffer != null) {
+            if (renderer != null) {
+                renderer.setMainFrameBufferOverride(null);
+            }
+            framebuffer.dispose();
+            framebuffer = null;
+        }
+    }
+
+    private void disposeSwapchain() {
+        disposeFramebuffer();
+        if (swapChain != null) {
+            SwapchainEvent swapchainEvent = new SwapchainEvent();
+            swapchainEvent.begin();
+            swapChain.dispose();
+            swapchainEvent.record(SwapchainEvent.DISPOSE, width, height, swapchainImageCount, presentationMode, txType);
+            swapChain = null;
+            swapchainAllocation.release();
+            swapchainAllocation = null;
+        }
+        if (swapchainScope != null) {
+            swapchainScope.close(); // anything still allocated for the swapchain has leaked.
+            swapchainScope = null;
         }
     }
 
@@ -252,6 +767,8 @@ public class FXContext extends LwjglContext implements Runnable {
      * @return returns true if initialisation was successful.
      */
     private boolean initInThread() {
+        ContextEvent contextEvent = new ContextEvent();
+        contextEvent.begin();
         try {
             if (!JmeSystem.isLowPermissions()) {
                 // Enable uncaught exception handler only for current thread
@@ -275,11 +792,16 @@ public class FXContext extends LwjglContext implements Runnable {
             isCreated.set(true);
 
         } catch (Exception e) {
+            contextEvent.record(ContextEvent.CREATE, txType, false);
             listener.handleError("Failed to create display", e);
             return false;
         }
 
         listener.initialize();
+        schedulerView = scheduler.register(settings.getTitle());
+        scheduler.configure(schedulerView, renderPriority, targetFrameRate);
+        watchdog.start(Thread.currentThread(), this::describeSwapchain);
+        contextEvent.record(ContextEvent.CREATE, txType, true);
         return true;
     }
 
@@ -287,11 +809,23 @@ public class FXContext extends LwjglContext implements Runnable {
      * Clean up and close LWJGL.
      */
     private void deinitInThread() {
+        ContextEvent contextEvent = new ContextEvent();
+        contextEvent.begin();
+        watchdog.stop();
         listener.destroy();
 
+        gpuTimer.dispose();
+        if (schedulerView != null) {
+            scheduler.unregister(schedulerView);
+            schedulerView = null;
+        }
+
         destroyContext();
         super.internalDestroy();
+        contextScope.close();
+        LOGGER.fine("GPU resources at exit: " + resources);
 
+        contextEvent.record(ContextEvent.DESTROY, txType, true);
         LOGGER.fine("Display destroyed.");
     }
 
@@ -311,7 +845,14 @@ public class FXContext extends LwjglContext implements Runnable {
         }
 
         do {
-            runLoop();
+            if (watchdog.takeFallbackRequest()) {
+                fallBack();
+            }
+            if (shouldSuspend()) {
+                suspendedLoop();
+            } else {
+                runLoop();
+            }
         } while (!shouldClose.get());
 
         if (debugProc != null) {
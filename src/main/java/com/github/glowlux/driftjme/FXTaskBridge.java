@@ -0,0 +1,306 @@
+package com.github.glowlux.driftjme;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.renderer.RenderManager;
+import javafx.application.Platform;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Batches work between the JavaFX thread and the JME render thread.
+ * <ul>
+ *     <li>Edits offered from JavaFX (or any other thread) are queued and applied together once per frame,
+ *     when this state is updated by the {@link com.jme3.app.state.AppStateManager}.</li>
+ *     <li>Results published from the render thread are delivered to JavaFX with at most one
+ *     {@link Platform#runLater(Runnable)} outstanding at a time, flushed after each frame is rendered.</li>
+ * </ul>
+ * Both directions have a bounded capacity. When full, {@code offer} returns false (or waits, for the timed variant)
+ * rather than growing the queue without limit, so a producer that outpaces the consumer gets pushed back on.
+ * Queue depth, throughput and latency are exposed through {@link #getEdits()} and {@link #getResults()}.
+ *
+ * @author glowlux
+ */
+public class FXTaskBridge extends AbstractAppState {
+
+    private static final Logger LOGGER = Logger.getLogger(FXTaskBridge.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Channel edits;
+    private final Channel results;
+
+    // drain buffers, reused every frame so applying a batch doesn't allocate.
+    private final Runnable[] editBatch;
+    private final long[] editBatchStamps;
+    private final Runnable[] resultBatch;
+    private final long[] resultBatchStamps;
+
+    private final AtomicBoolean resultFlushScheduled = new AtomicBoolean(false);
+    private final Runnable resultFlush = this::flushResults;
+
+    public FXTaskBridge() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of pending tasks in each direction.
+     */
+    public FXTaskBridge(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        edits = new Channel(capacity);
+        results = new Channel(capacity);
+        editBatch = new Runnable[capacity];
+        editBatchStamps = new long[capacity];
+        resultBatch = new Runnable[capacity];
+        resultBatchStamps = new long[capacity];
+    }
+
+    /**
+     * Queue an edit to be applied on the render thread during the next frame. Never blocks, safe on the JavaFX thread.
+     * @param edit the edit to apply.
+     * @return false if the queue is full and the edit was rejected.
+     */
+    public boolean offerEdit(Runnable edit) {
+        return edits.offer(edit);
+    }
+
+    /**
+     * Queue an edit, waiting for space if the queue is full. Intended for background producers, not the JavaFX thread.
+     * @param edit the edit to apply.
+     * @param timeout how long to wait for space.
+     * @param unit the unit of timeout.
+     * @return false if the queue stayed full for the whole timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean offerEdit(Runnable edit, long timeout, TimeUnit unit) throws InterruptedException {
+        return edits.offer(edit, timeout, unit);
+    }
+
+    /**
+     * Queue a result to be run on the JavaFX thread after the current frame. Never blocks.
+     * @param result the task to run on the JavaFX thread.
+     * @return false if the queue is full and the result was rejected.
+     */
+    public boolean offerResult(Runnable result) {
+        return results.offer(result);
+    }
+
+    /**
+     * @return queue metrics for edits travelling from JavaFX to JME.
+     */
+    public Channel getEdits() {
+        return edits;
+    }
+
+    /**
+     * @return queue metrics for results travelling from JME to JavaFX.
+     */
+    public Channel getResults() {
+        return results;
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        edits.runBatch(editBatch, editBatchStamps);
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        if (results.getDepth() > 0 && resultFlushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(resultFlush);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        edits.runBatch(editBatch, editBatchStamps); // don't silently drop edits that were already accepted.
+    }
+
+    private void flushResults() {
+        resultFlushScheduled.set(false);
+        results.runBatch(resultBatch, resultBatchStamps);
+    }
+
+    /**
+     * A bounded queue of tasks in one direction, along with its metrics.
+     * Latency is measured from the moment a task is accepted until it has finished running.
+     */
+    public static final class Channel {
+
+        private final Runnable[] tasks;
+        private final long[] stamps;
+        private int head;
+        private int size;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+
+        private volatile int depth;
+        private volatile int peakDepth;
+        private volatile long accepted;
+        private volatile long rejected;
+        private volatile long completed;
+        private volatile int lastBatchSize;
+        private volatile long lastLatencyNanos;
+        private volatile long maxLatencyNanos;
+        private volatile long totalLatencyNanos;
+
+        Channel(int capacity) {
+            tasks = new Runnable[capacity];
+            stamps = new long[capacity];
+        }
+
+        boolean offer(Runnable task) {
+            if (task == null) throw new NullPointerException("task");
+            lock.lock();
+            try {
+                if (size == tasks.length) {
+                    rejected++;
+                    return false;
+                }
+                enqueue(task);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+            if (task == null) throw new NullPointerException("task");
+            long nanos = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                while (size == tasks.length) {
+                    if (nanos <= 0) {
+                        rejected++;
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                enqueue(task);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void enqueue(Runnable task) {
+            int tail = (head + size) % tasks.length;
+            tasks[tail] = task;
+            stamps[tail] = System.nanoTime();
+            size++;
+            depth = size;
+            accepted++;
+            if (size > peakDepth) peakDepth = size;
+        }
+
+        /**
+         * Move everything pending into the given buffers and run it outside the lock, so producers are never held up
+         * by a slow task.
+         */
+        void runBatch(Runnable[] batch, long[] batchStamps) {
+            int count;
+            lock.lock();
+            try {
+                count = size;
+                for (int i = 0; i < count; i++) {
+                    int index = (head + i) % tasks.length;
+                    batch[i] = tasks[index];
+                    batchStamps[i] = stamps[index];
+                    tasks[index] = null;
+                }
+                head = (head + count) % tasks.length;
+                size = 0;
+                depth = 0;
+                if (count > 0) notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            lastBatchSize = count;
+            for (int i = 0; i < count; i++) {
+                Runnable task = batch[i];
+                batch[i] = null;
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Bridged task failed.", e);
+                }
+                recordLatency(System.nanoTime() - batchStamps[i]);
+            }
+        }
+
+        private void recordLatency(long latency) {
+            lastLatencyNanos = latency;
+            if (latency > maxLatencyNanos) maxLatencyNanos = latency;
+            totalLatencyNanos += latency;
+            completed++;
+        }
+
+        public int getCapacity() {
+            return tasks.length;
+        }
+
+        /**
+         * @return the number of tasks currently waiting.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getPeakDepth() {
+            return peakDepth;
+        }
+
+        public long getAcceptedCount() {
+            return accepted;
+        }
+
+        /**
+         * @return the number of tasks turned away because the queue was full.
+         */
+        public long getRejectedCount() {
+            return rejected;
+        }
+
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        /**
+         * @return the number of tasks run in the most recent batch.
+         */
+        public int getLastBatchSize() {
+            return lastBatchSize;
+        }
+
+        public long getLastLatencyNanos() {
+            return lastLatencyNanos;
+        }
+
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+
+        public long getAverageLatencyNanos() {
+            long count = completed;
+            return count == 0 ? 0 : totalLatencyNanos / count;
+        }
+
+        /**
+         * Reset the peak depth and maximum latency, e.g. at the start of a measurement window.
+         */
+        public void resetPeaks() {
+            peakDepth = depth;
+            maxLatencyNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.glowlux.driftjme;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Divides the time between rendered frames into logic steps of a fixed length.
+ * <p>
+ * With a step rate set, {@link FXContext} advances this once per frame just before updating the application.
+ * Elapsed time is accumulated and every whole step in it is one logic step to run this frame, so simulation runs
+ * at the same rate however fast frames are rendered: a 30Hz simulation in a 144Hz view runs a step every fifth
+ * frame or so, and on a machine too slow for the view it runs two or three steps in one frame. What is left over
+ * is the {@link #getAlpha() interpolation alpha}, how far rendering is between the last step and the next, for
+ * blending between the last two simulated states so motion stays smooth.
+ * </p>
+ * <p>
+ * So that a slow frame can't cause more steps, which make the next frame slower still, at most
+ * {@link #getMaxStepsPerFrame()} steps run per frame and the rest of the time is dropped. With no step rate set,
+ * every frame is a single step as long as the frame.
+ * </p>
+ * {@link com.github.glowlux.driftjme.util.FixedStepAppState} runs logic at these steps.
+ *
+ * @author glowlux
+ */
+public final class FixedTimestep {
+
+    private volatile float stepRate = 0f;
+    private volatile int maxStepsPerFrame = 5;
+
+    // render thread only, published for reading elsewhere.
+    private long lastNanos = -1;
+    private long accumulatorNanos;
+    private volatile int stepCount;
+    private volatile float stepSeconds;
+    private volatile float alpha = 1f;
+    private volatile long totalSteps;
+    private volatile long droppedSteps;
+
+    /**
+     * Set the logic step rate.
+     * @param stepRate steps per second, or 0 to step once per frame. 0 by default.
+     */
+    public void setStepRate(float stepRate) {
+        if (stepRate < 0) throw new IllegalArgumentException("step rate must not be negative");
+        this.stepRate = stepRate;
+    }
+
+    public float getStepRate() {
+        return stepRate;
+    }
+
+    /**
+     * @return true when a step rate is set.
+     */
+    public boolean isFixed() {
+        return stepRate > 0;
+    }
+
+    /**
+     * Limit how many steps run in one frame to catch up with lost time.
+     * @param maxStepsPerFrame the limit, at least 1. 5 by default.
+     */
+    public void setMaxStepsPerFrame(int maxStepsPerFrame) {
+        this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+    }
+
+    public int getMaxStepsPerFrame() {
+        return maxStepsPerFrame;
+    }
+
+    /**
+     * Advance to a new frame. Called by {@link FXContext} on the render thread, only call this directly when
+     * driving a timestep outside of one.
+     * @param nowNanos the frame time, from {@link System#nanoTime()}.
+     */
+    public void advance(long nowNanos) {
+        long elapsed = lastNanos < 0 ? 0 : nowNanos - lastNanos;
+        lastNanos = nowNanos;
+
+        float rate = stepRate;
+        if (rate <= 0) {
+            accumulatorNanos = 0;
+            stepSeconds = elapsed / (float) TimeUnit.SECONDS.toNanos(1);
+            stepCount = 1;
+            alpha = 1f;
+            totalSteps++;
+            return;
+        }
+
+        long stepNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        accumulatorNanos += elapsed;
+        long steps = accumulatorNanos / stepNanos;
+        accumulatorNanos -= steps * stepNanos;
+        int max = maxStepsPerFrame;
+        if (steps > max) {
+            droppedSteps += steps - max;
+            steps = max;
+        }
+        stepSeconds = 1f / rate;
+        stepCount = (int) steps;
+        alpha = accumulatorNanos / (float) stepNanos;
+        totalSteps += steps;
+    }
+
+    /**
+     * Forget the time since the last frame, e.g. after rendering was suspended, so it isn't caught up on.
+     */
+    public void reset() {
+        lastNanos = -1;
+        accumulatorNanos = 0;
+    }
+
+    /**
+     * @return how many logic steps to run this frame, possibly 0.
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * @return the length of each of this frame's steps in seconds.
+     */
+    public float getStepSeconds() {
+        return stepSeconds;
+    }
+
+    /**
+     * @return how far this frame is between the last step and the next, from 0 to 1. Always 1 when stepping once
+     * per frame.
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @return the number of steps run so far.
+     */
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * @return the number of steps skipped so far because frames fell too far behind.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
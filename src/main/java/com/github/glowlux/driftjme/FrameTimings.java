@@ -0,0 +1,116 @@
+package com.github.glowlux.driftjme;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timings of the most recent frames rendered by an {@link FXContext}, safe to read from any thread.
+ * <p>
+ * CPU phases are measured every frame. GPU timings are only available while GPU timing is enabled with
+ * {@link FXContext#setGpuTimingEnabled(boolean)}, and describe a frame a few frames older than the CPU timings,
+ * as they are read back without waiting for the GPU.
+ * </p>
+ *
+ * @author glowlux
+ */
+public final class FrameTimings {
+
+    private volatile long frameCount;
+    private volatile long acquireNanos;
+    private volatile long updateNanos;
+    private volatile long presentNanos;
+    private volatile long frameNanos;
+
+    private volatile long gpuFrameCount;
+    private volatile long gpuFrameNanos;
+    // copied in by the render thread each timed frame, only turned into a map when read.
+    private final String[] gpuViewportNames = new String[GpuTimer.MAX_VIEWPORTS];
+    private final long[] gpuViewportTimes = new long[GpuTimer.MAX_VIEWPORTS];
+    private int gpuViewportCount; // guarded by gpuViewportNames.
+
+    FrameTimings() {}
+
+    void recordCpu(long acquireNanos, long updateNanos, long presentNanos) {
+        this.acquireNanos = acquireNanos;
+        this.updateNanos = updateNanos;
+        this.presentNanos = presentNanos;
+        this.frameNanos = acquireNanos + updateNanos + presentNanos;
+        frameCount++;
+    }
+
+    void recordGpu(long gpuFrameNanos, String[] viewportNames, long[] viewportNanos, int viewportCount) {
+        this.gpuFrameNanos = gpuFrameNanos;
+        synchronized (gpuViewportNames) {
+            System.arraycopy(viewportNames, 0, gpuViewportNames, 0, viewportCount);
+            System.arraycopy(viewportNanos, 0, gpuViewportTimes, 0, viewportCount);
+            if (viewportCount < gpuViewportCount) Arrays.fill(gpuViewportNames, viewportCount, gpuViewportCount, null);
+            gpuViewportCount = viewportCount;
+        }
+        gpuFrameCount++;
+    }
+
+    /**
+     * @return the number of frames rendered.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return time spent waiting to acquire a swapchain image.
+     */
+    public long getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    /**
+     * @return time spent in the application update, which includes issuing the render commands.
+     */
+    public long getUpdateNanos() {
+        return updateNanos;
+    }
+
+    /**
+     * @return time spent presenting the swapchain image to JavaFX.
+     */
+    public long getPresentNanos() {
+        return presentNanos;
+    }
+
+    /**
+     * @return the CPU time of the last frame, the sum of the phases.
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * @return the number of frames GPU timings have been read back for.
+     */
+    public long getGpuFrameCount() {
+        return gpuFrameCount;
+    }
+
+    /**
+     * @return GPU time of the whole frame, from the start of the update to the end of the frame.
+     */
+    public long getGpuFrameNanos() {
+        return gpuFrameNanos;
+    }
+
+    /**
+     * @return GPU time of each viewport rendered in the frame, keyed by viewport name. A new map on every call.
+     */
+    public Map<String, Long> getGpuViewportNanos() {
+        synchronized (gpuViewportNames) {
+            if (gpuViewportCount == 0) return Collections.emptyMap();
+            Map<String, Long> nanos = new LinkedHashMap<>();
+            for (int i = 0; i < gpuViewportCount; i++) {
+                nanos.put(gpuViewportNames[i], gpuViewportTimes[i]);
+            }
+            return Collections.unmodifiableMap(nanos);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.github.glowlux.driftjme;
+
+import com.jme3.renderer.Statistics;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Accounts for the GPU resources an {@link FXContext} allocates itself: swapchain images, framebuffers, depth and
+ * colour buffers, texture views and timer queries. Sizes are estimates from the dimensions and formats requested,
+ * drivers may pad or compress them.
+ * <p>
+ * Every allocation belongs to a scope, the swapchain or the context that created it. When a scope is closed any
+ * allocation still open in it is logged as a leak and written off, so a leak shows up once rather than growing the
+ * totals forever.
+ * </p>
+ * <p>
+ * JME's own objects (textures, framebuffers and shaders created through the renderer) are not allocated here.
+ * With {@link #setTrackJmeObjects(boolean)} their live counts are sampled from the renderer's statistics, and the
+ * process wide direct buffer pool, where JME keeps vertex and image data, is always available.
+ * </p>
+ * Counters are safe to read from any thread.
+ *
+ * @author glowlux
+ */
+public final class GpuResourceTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(GpuResourceTracker.class.getName());
+
+    public enum Category {
+        SWAPCHAIN_IMAGE,
+        FRAMEBUFFER,
+        DEPTH_BUFFER,
+        COLOR_BUFFER,
+        TEXTURE_VIEW,
+        QUERY
+    }
+
+    private static final int CATEGORIES = Category.values().length;
+
+    private final AtomicLongArray counts = new AtomicLongArray(CATEGORIES);
+    private final AtomicLongArray bytes = new AtomicLongArray(CATEGORIES);
+    private final AtomicLongArray peakBytes = new AtomicLongArray(CATEGORIES);
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong peakTotalBytes = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    private volatile boolean trackJmeObjects = false;
+    private volatile int jmeTextures = -1;
+    private volatile int jmeFrameBuffers = -1;
+    private volatile int jmeShaders = -1;
+    private int[] statisticsData; // render thread only.
+    private int texturesIndex = -1, frameBuffersIndex = -1, shadersIndex = -1;
+
+    GpuResourceTracker() {}
+
+    /**
+     * Sample the number of textures, framebuffers and shaders JME has alive, from the renderer's statistics.
+     * Enables the statistics, which has a small cost per draw call. Objects are only counted from when the statistics
+     * were enabled, so turn this on before loading assets.
+     * @param trackJmeObjects true to sample JME's objects.
+     */
+    public void setTrackJmeObjects(boolean trackJmeObjects) {
+        this.trackJmeObjects = trackJmeObjects;
+        if (!trackJmeObjects) {
+            jmeTextures = jmeFrameBuffers = jmeShaders = -1;
+        }
+    }
+
+    public boolean isTrackJmeObjects() {
+        return trackJmeObjects;
+    }
+
+    /**
+     * Sample JME's live object counts if tracking them, called on the render thread once per frame.
+     */
+    void sampleJmeObjects(Statistics statistics) {
+        if (!trackJmeObjects) return;
+        if (!statistics.isEnabled()) {
+            // the counters only move while enabled, so counts start from when tracking was turned on.
+            statistics.setEnabled(true);
+        }
+        if (statisticsData == null) {
+            String[] labels = statistics.getLabels();
+            statisticsData = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                if ("Textures (M)".equals(labels[i])) texturesIndex = i;
+                else if ("FrameBuffers (M)".equals(labels[i])) frameBuffersIndex = i;
+                else if ("Shaders (M)".equals(labels[i])) shadersIndex = i;
+            }
+        }
+        statistics.getData(statisticsData);
+        jmeTextures = texturesIndex < 0 ? -1 : statisticsData[texturesIndex];
+        jmeFrameBuffers = frameBuffersIndex < 0 ? -1 : statisticsData[frameBuffersIndex];
+        jmeShaders = shadersIndex < 0 ? -1 : statisticsData[shadersIndex];
+    }
+
+    Scope openScope(String name) {
+        return new Scope(name);
+    }
+
+    /**
+     * Record an allocation.
+     * @param scope the swapchain or context the resource belongs to.
+     * @param category what the resource is.
+     * @param count how many GL objects it is made of.
+     * @param size the estimated size in bytes.
+     * @return the allocation, to be released when the resource is deleted.
+     */
+    Allocation allocate(Scope scope, Category category, int count, long size) {
+        Allocation allocation = new Allocation(scope, category, count, size);
+        int i = category.ordinal();
+        counts.addAndGet(i, count);
+        long categoryBytes = bytes.addAndGet(i, size);
+        peakBytes.accumulateAndGet(i, categoryBytes, Math::max);
+        peakTotalBytes.accumulateAndGet(totalBytes.addAndGet(size), Math::max);
+        scope.add(allocation);
+        return allocation;
+    }
+
+    private void free(Allocation allocation) {
+        int i = allocation.category.ordinal();
+        counts.addAndGet(i, -allocation.count);
+        bytes.addAndGet(i, -allocation.size);
+        totalBytes.addAndGet(-allocation.size);
+    }
+
+    public long getCount(Category category) {
+        return counts.get(category.ordinal());
+    }
+
+    public long getBytes(Category category) {
+        return bytes.get(category.ordinal());
+    }
+
+    public long getPeakBytes(Category category) {
+        return peakBytes.get(category.ordinal());
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public long getPeakTotalBytes() {
+        return peakTotalBytes.get();
+    }
+
+    /**
+     * @return the number of allocations that were still open when the swapchain or context owning them went away.
+     */
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * @return the number of live JME textures, or -1 if not tracking JME objects.
+     */
+    public int getJmeTextureCount() {
+        return jmeTextures;
+    }
+
+    /**
+     * @return the number of live JME framebuffers, or -1 if not tracking JME objects.
+     */
+    public int getJmeFrameBufferCount() {
+        return jmeFrameBuffers;
+    }
+
+    /**
+     * @return the number of live JME shaders, or -1 if not tracking JME objects.
+     */
+    public int getJmeShaderCount() {
+        return jmeShaders;
+    }
+
+    /**
+     * @return bytes held in direct buffers by the whole process, or -1 if the JVM doesn't report it.
+     */
+    public static long getDirectBufferBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) return pool.getMemoryUsed();
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("total %.1f MB (peak %.1f MB)", mb(getTotalBytes()), mb(getPeakTotalBytes())));
+        for (Category category : Category.values()) {
+            if (getCount(category) == 0 && getPeakBytes(category) == 0) continue;
+            builder.append(String.format(", %s %d / %.1f MB", category.name().toLowerCase(), getCount(category), mb(getBytes(category))));
+        }
+        if (trackJmeObjects) {
+            builder.append(String.format(", jme textures %d framebuffers %d shaders %d", jmeTextures, jmeFrameBuffers, jmeShaders));
+        }
+        if (getLeakCount() > 0) builder.append(", leaks ").append(getLeakCount());
+        return builder.toString();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * The owner of a group of allocations, closed when the owner is destroyed.
+     */
+    final class Scope {
+
+        private final String name;
+        private final Set<Allocation> open = new LinkedHashSet<>();
+
+        private Scope(String name) {
+            this.name = name;
+        }
+
+        private synchronized void add(Allocation allocation) {
+            open.add(allocation);
+        }
+
+        private synchronized boolean remove(Allocation allocation) {
+            return open.remove(allocation);
+        }
+
+        /**
+         * Close the scope, reporting and writing off anything still allocated in it.
+         */
+        void close() {
+            List<Allocation> leaked;
+            synchronized (this) {
+                leaked = new ArrayList<>(open);
+                open.clear();
+            }
+            for (Allocation allocation : leaked) {
+                leaks.incrementAndGet();
+                free(allocation);
+                LOGGER.warning("Leaked " + allocation + " outlived its " + name + ".");
+            }
+        }
+    }
+
+    /**
+     * One tracked resource.
+     */
+    final class Allocation {
+
+        private final Scope scope;
+        private final Category category;
+        private final int count;
+        private final long size;
+
+        private Allocation(Scope scope, Category category, int count, long size) {
+            this.scope = scope;
+            this.category = category;
+            this.count = count;
+            this.size = size;
+        }
+
+        /**
+         * Record the resource being deleted. Releasing twice, or after the scope was closed, does nothing.
+         */
+        void release() {
+            if (scope.remove(this)) free(this);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d objects, %d bytes)", category.name().toLowerCase(), count, size);
+        }
+    }
+}
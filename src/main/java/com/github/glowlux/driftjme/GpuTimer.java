@@ -0,0 +1,206 @@
+package com.github.glowlux.driftjme;
+
+import com.jme3.renderer.ViewPort;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.logging.Logger;
+
+import static org.lwjgl.opengl.GL11.GL_TRUE;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Measures GPU time per frame and per viewport with {@code GL_TIMESTAMP} queries.
+ * Timestamps are used rather than {@code GL_TIME_ELAPSED} because elapsed time queries can't nest, and viewports
+ * render inside the frame.
+ * <p>
+ * Queries are recorded into a ring of {@link #FRAME_LATENCY} frames and read back when their slot comes round
+ * again, by which time the GPU has normally finished with them, so the CPU never waits. If it hasn't, that frame
+ * simply isn't timed.
+ * </p>
+ * Must only be used on the render thread, except {@link #setEnabled(boolean)}.
+ *
+ * @author glowlux
+ */
+final class GpuTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(GpuTimer.class.getName());
+
+    static final int FRAME_LATENCY = 4;
+    static final int MAX_VIEWPORTS = 31; // two queries each, plus two for the frame.
+
+    private final FrameTimings timings;
+    private final GpuResourceTracker resources;
+    private final GpuResourceTracker.Scope scope;
+    private GpuResourceTracker.Allocation allocation;
+    private final Slot[] slots = new Slot[FRAME_LATENCY];
+    private int slotIndex;
+    private Slot current;
+
+    private volatile boolean enabled;
+    private boolean supported = true;
+
+    GpuTimer(FrameTimings timings, GpuResourceTracker resources, GpuResourceTracker.Scope scope) {
+        this.timings = timings;
+        this.resources = resources;
+        this.scope = scope;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true between {@link #beginFrame()} and {@link #endFrame()} of a frame that is being timed.
+     */
+    boolean isRecording() {
+        return current != null;
+    }
+
+    void beginFrame() {
+        current = null;
+        if (!enabled || !supported) return;
+
+        if (slots[0] == null) {
+            GLCapabilities caps = GL.getCapabilities();
+            if (!caps.OpenGL33 && !caps.GL_ARB_timer_query) {
+                LOGGER.warning("Timer queries are not supported, GPU timing disabled.");
+                supported = false;
+                return;
+            }
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new Slot();
+            }
+            int queries = slots.length * slots[0].queries.length;
+            allocation = resources.allocate(scope, GpuResourceTracker.Category.QUERY, queries, queries * 8L);
+        }
+
+        Slot slot = slots[slotIndex];
+        if (slot.pending) {
+            if (!slot.isAvailable()) return; // GPU is still busy with it, skip timing this frame rather than stall.
+            slot.publish(timings);
+        }
+        slotIndex = (slotIndex + 1) % slots.length;
+
+        slot.begin();
+        current = slot;
+    }
+
+    void beginViewport(ViewPort viewPort) {
+        if (current != null) current.beginViewport(viewPort);
+    }
+
+    void endViewport(ViewPort viewPort) {
+        if (current != null) current.endViewport(viewPort);
+    }
+
+    void endFrame() {
+        if (current == null) return;
+        current.end();
+        current = null;
+    }
+
+    void dispose() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                glDeleteQueries(slots[i].queries);
+                slots[i] = null;
+            }
+        }
+        if (allocation != null) {
+            allocation.release();
+            allocation = null;
+        }
+        current = null;
+    }
+
+    /**
+     * The queries of one frame. Query 0 is the start of the frame, 1 the end, then a begin/end pair per viewport.
+     */
+    private static final class Slot {
+
+        private final int[] queries = new int[2 + MAX_VIEWPORTS * 2];
+        private final ViewPort[] viewPorts = new ViewPort[MAX_VIEWPORTS];
+        private final boolean[] viewPortEnded = new boolean[MAX_VIEWPORTS];
+        // results by viewport name, reused every frame so timing allocates nothing.
+        private final String[] resultNames = new String[MAX_VIEWPORTS];
+        private final long[] resultNanos = new long[MAX_VIEWPORTS];
+        private int viewPortCount;
+        private boolean pending;
+
+        Slot() {
+            glGenQueries(queries);
+        }
+
+        void begin() {
+            viewPortCount = 0;
+            glQueryCounter(queries[0], GL_TIMESTAMP);
+        }
+
+        void beginViewport(ViewPort viewPort) {
+            if (viewPortCount == MAX_VIEWPORTS) return;
+            viewPorts[viewPortCount] = viewPort;
+            viewPortEnded[viewPortCount] = false;
+            glQueryCounter(queries[2 + viewPortCount * 2], GL_TIMESTAMP);
+            viewPortCount++;
+        }
+
+        void endViewport(ViewPort viewPort) {
+            for (int i = viewPortCount - 1; i >= 0; i--) {
+                if (viewPorts[i] == viewPort && !viewPortEnded[i]) {
+                    viewPortEnded[i] = true;
+                    glQueryCounter(queries[3 + i * 2], GL_TIMESTAMP);
+                    return;
+                }
+            }
+        }
+
+        void end() {
+            glQueryCounter(queries[1], GL_TIMESTAMP);
+            pending = true;
+        }
+
+        boolean isAvailable() {
+            // queries complete in order, so the end of the frame being available means all of them are.
+            return glGetQueryObjecti(queries[1], GL_QUERY_RESULT_AVAILABLE) == GL_TRUE;
+        }
+
+        void publish(FrameTimings timings) {
+            pending = false;
+            long frameStart = glGetQueryObjecti64(queries[0], GL_QUERY_RESULT);
+            long frameEnd = glGetQueryObjecti64(queries[1], GL_QUERY_RESULT);
+
+            int results = 0;
+            for (int i = 0; i < viewPortCount; i++) {
+                if (viewPortEnded[i]) {
+                    long start = glGetQueryObjecti64(queries[2 + i * 2], GL_QUERY_RESULT);
+                    long end = glGetQueryObjecti64(queries[3 + i * 2], GL_QUERY_RESULT);
+                    results = addResult(results, viewPorts[i].getName(), end - start);
+                }
+                viewPorts[i] = null;
+            }
+            timings.recordGpu(frameEnd - frameStart, resultNames, resultNanos, results);
+        }
+
+        /**
+         * Add a viewport's time to the results, summed with earlier viewports of the same name.
+         * @return the number of results.
+         */
+        private int addResult(int results, String name, long nanos) {
+            for (int i = 0; i < results; i++) {
+                if (resultNames[i].equals(name)) {
+                    resultNanos[i] += nanos;
+                    return results;
+                }
+            }
+            resultNames[results] = name;
+            resultNanos[results] = nanos;
+            return results + 1;
+        }
+    }
+}
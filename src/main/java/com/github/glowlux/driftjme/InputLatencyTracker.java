@@ -0,0 +1,67 @@
+package com.github.glowlux.driftjme;
+
+import java.util.Arrays;
+
+/**
+ * Tracks how long input events take to reach JME and then the screen.
+ * <ul>
+ *     <li>capture to dispatch: from the JavaFX event being captured to it being handed to the input listener.</li>
+ *     <li>capture to present: from capture to the present of the frame that the event was dispatched in,
+ *     the first frame that can reflect it.</li>
+ * </ul>
+ * Events are reported by the FX inputs as they are dispatched, and {@link FXContext} completes them after each
+ * present. Dispatch and present both happen on the render thread, the histograms can be read from any thread.
+ *
+ * @author glowlux
+ */
+public final class InputLatencyTracker {
+
+    private final LatencyHistogram captureToDispatch = new LatencyHistogram();
+    private final LatencyHistogram captureToPresent = new LatencyHistogram();
+
+    // capture times of events dispatched in the current frame, render thread only.
+    private long[] pendingCaptures = new long[64];
+    private int pendingCount;
+
+    InputLatencyTracker() {}
+
+    /**
+     * Record an event being dispatched to JME. Called by the inputs on the render thread.
+     * @param captureNanos when the event was captured, in {@link System#nanoTime()} time.
+     * @param dispatchNanos when the event was dispatched.
+     */
+    public void dispatched(long captureNanos, long dispatchNanos) {
+        captureToDispatch.record(dispatchNanos - captureNanos);
+        if (pendingCount == pendingCaptures.length) {
+            pendingCaptures = Arrays.copyOf(pendingCaptures, pendingCount * 2);
+        }
+        pendingCaptures[pendingCount++] = captureNanos;
+    }
+
+    void presented(long presentNanos) {
+        for (int i = 0; i < pendingCount; i++) {
+            captureToPresent.record(presentNanos - pendingCaptures[i]);
+        }
+        pendingCount = 0;
+    }
+
+    void discardPending() {
+        pendingCount = 0;
+    }
+
+    public LatencyHistogram getCaptureToDispatch() {
+        return captureToDispatch;
+    }
+
+    public LatencyHistogram getCaptureToPresent() {
+        return captureToPresent;
+    }
+
+    /**
+     * Clear both histograms, e.g. after changing presentation settings.
+     */
+    public void reset() {
+        captureToDispatch.reset();
+        captureToPresent.reset();
+    }
+}
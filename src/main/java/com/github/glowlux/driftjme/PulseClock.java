@@ -0,0 +1,145 @@
+package com.github.glowlux.driftjme;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Follows the JavaFX pulse so an {@link FXContext} can produce exactly one frame per pulse, finishing it just
+ * before the pulse that will composite it.
+ * <p>
+ * An {@link AnimationTimer} records the time of every pulse (and keeps pulses coming while it runs). The pulse
+ * interval is measured rather than assumed, so the clock follows 60, 120 or 144 Hz displays alike. The render
+ * thread waits in {@link #awaitFrameStart(long, BooleanSupplier)} until the predicted next pulse minus the time
+ * it needs to render a frame, and reports each present with {@link #framePresented()}. A pulse that arrives
+ * without a frame presented since the previous pulse is counted as missed, and widens the safety margin.
+ * </p>
+ *
+ * @author glowlux
+ */
+final class PulseClock {
+
+    private static final long DEFAULT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 500;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // upper bound so close requests are never missed.
+    private static final long MIN_MARGIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onPulse(now);
+        }
+    };
+
+    // written on the JavaFX thread.
+    private volatile long lastPulseNanos;
+    private volatile long intervalNanos = DEFAULT_INTERVAL_NANOS;
+    private volatile long pulseCount;
+    private volatile long missedPulses;
+    private final AtomicBoolean presentedSincePulse = new AtomicBoolean(true);
+
+    // render thread only.
+    private boolean running;
+    private long targetPulseNanos;
+    private long marginNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private long lastSeenMissed;
+
+    /**
+     * Start or stop following the pulse. Called from the render thread, stopping lets JavaFX go idle again.
+     * @param running true to follow the pulse.
+     */
+    void setRunning(boolean running) {
+        if (running == this.running) return;
+        this.running = running;
+        if (running) {
+            lastPulseNanos = 0;
+            targetPulseNanos = 0;
+            presentedSincePulse.set(true);
+            Platform.runLater(timer::start);
+        } else {
+            Platform.runLater(timer::stop);
+        }
+    }
+
+    private void onPulse(long now) {
+        long last = lastPulseNanos;
+        if (last != 0) {
+            long interval = now - last;
+            long estimate = intervalNanos;
+            // pulses JavaFX itself skipped (a long layout, a stalled FX thread) would skew the estimate, ignore them.
+            if (interval >= MIN_INTERVAL_NANOS && interval < estimate * 3 / 2) {
+                intervalNanos = estimate + (interval - estimate) / 8;
+            } else if (interval >= MIN_INTERVAL_NANOS && interval < estimate * 3 && pulseCount < 8) {
+                intervalNanos = interval; // still converging from the default.
+            }
+            if (!presentedSincePulse.getAndSet(false)) {
+                missedPulses++;
+            }
+        }
+        lastPulseNanos = now;
+        pulseCount++;
+    }
+
+    /**
+     * Wait until it is time to start rendering the frame for the next pulse.
+     * @param frameNanos how long a frame is expected to take, from starting it to it being presented.
+     * @param shouldStop checked while waiting, stops waiting early when true.
+     */
+    void awaitFrameStart(long frameNanos, BooleanSupplier shouldStop) {
+        while (!shouldStop.getAsBoolean()) {
+            long last = lastPulseNanos;
+            if (last == 0) return; // no pulse seen yet, nothing to lock to.
+
+            long interval = intervalNanos;
+            long now = System.nanoTime();
+            // the next pulse that hasn't been rendered for yet and can't already have passed.
+            long target = last + interval;
+            while (target <= now || target - targetPulseNanos < interval / 2) {
+                target += interval;
+            }
+
+            long start = target - Math.min(frameNanos + marginNanos, interval);
+            if (start <= now) {
+                targetPulseNanos = target;
+                return;
+            }
+            LockSupport.parkNanos(this, Math.min(start - now, MAX_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Report that a frame has been presented, called from the render thread after each present.
+     */
+    void framePresented() {
+        long missed = missedPulses;
+        presentedSincePulse.set(true);
+        long interval = intervalNanos;
+        if (missed != lastSeenMissed) {
+            // a pulse went by without a fresh frame, leave more room before the next one.
+            marginNanos = Math.min(marginNanos + TimeUnit.MILLISECONDS.toNanos(1), interval / 2);
+            lastSeenMissed = missed;
+        } else {
+            // slowly hand the margin back while frames keep arriving in time.
+            marginNanos = Math.max(marginNanos - TimeUnit.MICROSECONDS.toNanos(10), MIN_MARGIN_NANOS);
+        }
+    }
+
+    /**
+     * @return the measured pulse rate in Hz.
+     */
+    double getPulseRate() {
+        return TimeUnit.SECONDS.toNanos(1) / (double) intervalNanos;
+    }
+
+    long getPulseCount() {
+        return pulseCount;
+    }
+
+    long getMissedPulses() {
+        return missedPulses;
+    }
+}
@@ -0,0 +1,279 @@
+package com.github.glowlux.driftjme;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shares the GPU between every {@link FXContext} in the process.
+ * <p>
+ * Each context registers a {@link View} with a priority and a target frame rate. The scheduler measures what a
+ * frame of each view costs and hands out the frame budget, the fraction of each second that may be spent
+ * rendering, in priority order. Views of the same priority split what is left evenly, and a view that needs less
+ * than its share leaves the rest to the others. A view's frame rate is then its share of the budget divided by
+ * its frame cost, capped at its target rate and never below {@link #MIN_FRAME_RATE}, so low priority views slow
+ * down but never stop.
+ * </p>
+ * <p>
+ * Frame costs are the GPU frame time when GPU timing is enabled on the context, otherwise the CPU time spent
+ * updating and rendering, leaving out time blocked on the swapchain.
+ * With the default budget of 1 and a single uncapped view, nothing is throttled.
+ * </p>
+ * <p>
+ * A view without a target frame rate asks for as much as it can get, so it takes everything left at its priority
+ * and every view of a lower priority drops to {@link #MIN_FRAME_RATE}. Give views that outrank others a target rate.
+ * </p>
+ * <p>
+ * The budget is split again whenever a view registers, leaves, is suspended or resumed or is reconfigured, and
+ * when a view's measured cost has drifted far enough from the one its share was based on. Otherwise a finished
+ * frame only turns the view's share into a frame rate using its latest cost.
+ * </p>
+ *
+ * <pre>
+ * mainView.getFXContext().setRenderPriority(10);
+ * mainView.getFXContext().setTargetFrameRate(60);
+ * preview.getFXContext().setTargetFrameRate(5);
+ * </pre>
+ *
+ * @author glowlux
+ */
+public final class RenderScheduler {
+
+    public static final float MIN_FRAME_RATE = 1f;
+
+    private static final RenderScheduler DEFAULT = new RenderScheduler();
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // upper bound so close requests are never missed.
+
+    private static final int REALLOCATE_DRIFT = 4; // split the budget again once a cost moves by a quarter.
+
+    private final List<View> views = new ArrayList<>();
+    private View[] ordered = new View[0]; // the active views, highest priority first. Guarded by this.
+    private volatile double budget = 1.0;
+
+    /**
+     * @return the scheduler shared by every context in the process.
+     */
+    public static RenderScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Set the fraction of each second the registered views may spend rendering in total.
+     * Above 1 allows for views rendering in parallel, e.g. on different GPUs.
+     * @param budget the frame budget, 1 by default.
+     */
+    public void setBudget(double budget) {
+        if (budget <= 0) throw new IllegalArgumentException("budget must be positive");
+        this.budget = budget;
+        synchronized (this) {
+            allocate();
+        }
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return a snapshot of the registered views.
+     */
+    public synchronized List<View> getViews() {
+        return Collections.unmodifiableList(new ArrayList<>(views));
+    }
+
+    synchronized View register(String name) {
+        View view = new View(name);
+        views.add(view);
+        reorder();
+        return view;
+    }
+
+    synchronized void unregister(View view) {
+        views.remove(view);
+        reorder();
+    }
+
+    synchronized void setActive(View view, boolean active) {
+        if (view.active == active) return;
+        view.active = active;
+        view.nextFrameNanos = 0;
+        reorder();
+    }
+
+    synchronized void configure(View view, int priority, float targetFrameRate) {
+        view.priority = priority;
+        view.targetFrameRate = targetFrameRate;
+        reorder();
+    }
+
+    /**
+     * Wait until the view is due its next frame, called from the view's render thread.
+     * @param shouldStop checked while waiting, stops waiting early when true.
+     */
+    void awaitTurn(View view, BooleanSupplier shouldStop) {
+        while (!shouldStop.getAsBoolean()) {
+            long wait = view.nextFrameNanos - System.nanoTime();
+            if (view.nextFrameNanos == 0 || wait <= 0) return;
+            LockSupport.parkNanos(this, Math.min(wait, MAX_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Report a finished frame, called from the view's render thread.
+     * @param frameStartNanos when the frame started.
+     * @param costNanos what the frame cost, see the class documentation.
+     */
+    void frameFinished(View view, long frameStartNanos, long costNanos) {
+        long cost = view.costNanos == 0 ? costNanos : view.costNanos + (costNanos - view.costNanos) / 8;
+        view.costNanos = cost;
+        long allocatedCost = view.allocatedCostNanos;
+        if (view.active && Math.abs(cost - allocatedCost) > allocatedCost / REALLOCATE_DRIFT) {
+            synchronized (this) {
+                allocate(); // the view's demand has changed enough to move budget between views.
+            }
+        } else {
+            view.frameRate = rateFor(view, view.grant);
+        }
+
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / view.frameRate);
+        long scheduled = view.nextFrameNanos == 0 ? frameStartNanos : view.nextFrameNanos;
+        // keep a steady cadence, but don't try to catch up after falling behind.
+        view.nextFrameNanos = Math.max(scheduled + period, System.nanoTime() - period);
+    }
+
+    /**
+     * Rebuild the priority order of the active views and split the budget. Must hold the lock.
+     */
+    private void reorder() {
+        List<View> active = new ArrayList<>();
+        for (View view : views) {
+            if (view.active) active.add(view);
+        }
+        active.sort(Comparator.comparingInt((View view) -> view.priority).reversed());
+        ordered = active.toArray(new View[0]);
+        allocate();
+    }
+
+    /**
+     * Split the budget between the active views, without allocating. Must hold the lock.
+     */
+    private void allocate() {
+        View[] order = ordered;
+        double remaining = budget;
+        int i = 0;
+        while (i < order.length) {
+            int end = i + 1;
+            while (end < order.length && order[end].priority == order[i].priority) end++;
+
+            // water-filling within a priority: the smallest demands are met first, the rest split what is left.
+            sortByDemand(order, i, end);
+            for (int g = i; g < end; g++) {
+                View view = order[g];
+                double share = Math.max(remaining, 0) / (end - g);
+                double grant = Math.min(view.demand(), share);
+                remaining -= grant;
+                view.grant = grant;
+                view.allocatedCostNanos = view.costNanos;
+                view.frameRate = rateFor(view, grant);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Insertion sort of a priority group, small enough that this beats a general sort. It also tolerates costs
+     * changing on render threads while it runs.
+     */
+    private static void sortByDemand(View[] order, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            View view = order[i];
+            double demand = view.demand();
+            int j = i - 1;
+            while (j >= from && order[j].demand() > demand) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = view;
+        }
+    }
+
+    private static float rateFor(View view, double grant) {
+        float target = view.targetFrameRate;
+        if (view.costNanos == 0) return target > 0 ? target : Float.POSITIVE_INFINITY; // nothing measured yet.
+        double rate = grant * TimeUnit.SECONDS.toNanos(1) / view.costNanos;
+        if (target > 0) rate = Math.min(rate, target);
+        float floor = target > 0 ? Math.min(MIN_FRAME_RATE, target) : MIN_FRAME_RATE;
+        return (float) Math.max(rate, floor);
+    }
+
+    /**
+     * A context registered with the scheduler.
+     */
+    public static final class View {
+
+        private final String name;
+        private volatile int priority;
+        private volatile float targetFrameRate;
+        private volatile float frameRate = Float.POSITIVE_INFINITY;
+        private volatile long costNanos;
+        private volatile double grant; // share of the budget from the last allocation.
+        private volatile long allocatedCostNanos; // the cost that share was based on.
+        private volatile boolean active = true;
+        private volatile long nextFrameNanos;
+
+        private View(String name) {
+            this.name = name;
+        }
+
+        private double demand() {
+            if (targetFrameRate <= 0 || costNanos == 0) return Double.POSITIVE_INFINITY;
+            return costNanos * (double) targetFrameRate / TimeUnit.SECONDS.toNanos(1);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return the frame rate asked for, 0 for as fast as the budget allows.
+         */
+        public float getTargetFrameRate() {
+            return targetFrameRate;
+        }
+
+        /**
+         * @return the frame rate currently allowed by the scheduler, infinite if not limited.
+         */
+        public float getFrameRate() {
+            return frameRate;
+        }
+
+        /**
+         * @return the measured cost of a frame, averaged over recent frames.
+         */
+        public long getCostNanos() {
+            return costNanos;
+        }
+
+        /**
+         * @return false while the context is suspended, in which case it takes no budget.
+         */
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s priority=%d target=%.1f rate=%.1f cost=%.2fms%s", name, priority, targetFrameRate,
+                    frameRate, costNanos / 1e6, active ? "" : " (suspended)");
+        }
+    }
+}
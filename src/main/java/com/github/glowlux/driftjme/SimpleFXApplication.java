@@ -1,6 +1,8 @@
 package com.github.glowlux.driftjme;
 
+import com.github.glowlux.driftjme.input.InputReplay;
 import com.jme3.app.SimpleApplication;
+import com.jme3.profile.AppProfiler;
 import com.jme3.system.AppSettings;
 import javafx.stage.Stage;
 import org.eclipse.fx.drift.DriftFXSurface;
@@ -17,6 +19,9 @@ public abstract class SimpleFXApplication extends SimpleApplication {
     private Stage stage;
     private final boolean disableDebugOutput;
     private final boolean forceMainMemoryTransfer;
+    private final FXTaskBridge taskBridge = new FXTaskBridge();
+    private FXContext fxContext;
+    private InputReplay inputReplay;
 
     public SimpleFXApplication(DriftFXSurface surface, Stage stage, boolean disableDebugOutput, boolean forceMainMemoryTransfer) {
         super();
@@ -24,6 +29,50 @@ public abstract class SimpleFXApplication extends SimpleApplication {
         this.stage = stage;
         this.disableDebugOutput = disableDebugOutput;
         this.forceMainMemoryTransfer = forceMainMemoryTransfer;
+        stateManager.attach(taskBridge);
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        setAppProfiler(getAppProfiler()); // wraps any profiler set before starting.
+    }
+
+    /**
+     * Set the profiler, which is wrapped so the per-viewport GPU timing of {@link FXContext#setGpuTimingEnabled}
+     * keeps working; the profiler still receives every step. {@link #getAppProfiler()} returns the wrapper.
+     * @param profiler the profiler, or null for none.
+     */
+    @Override
+    public void setAppProfiler(AppProfiler profiler) {
+        if (fxContext != null && !(profiler instanceof FXAppProfiler)) {
+            profiler = new FXAppProfiler(fxContext.getGpuTimer(), profiler);
+        }
+        super.setAppProfiler(profiler);
+    }
+
+    /**
+     * @return the context rendering this application, null until {@link #start()} is called.
+     */
+    public FXContext getFXContext() {
+        return fxContext;
+    }
+
+    /**
+     * @return the bridge for batching edits from JavaFX into the scene and results back to JavaFX.
+     */
+    public FXTaskBridge getTaskBridge() {
+        return taskBridge;
+    }
+
+    /**
+     * Drive the application from a recording instead of live keyboard and mouse input.
+     * Must be called before {@link #start()}.
+     * @param inputReplay the recording to play, or null for live input.
+     * @see FXContext#setInputReplay(InputReplay)
+     */
+    public void setInputReplay(InputReplay inputReplay) {
+        this.inputReplay = inputReplay;
     }
 
     @Override
@@ -31,7 +80,9 @@ public abstract class SimpleFXApplication extends SimpleApplication {
         if (settings == null) {
             setSettings(new AppSettings(true));
         }
-        FXContext fxContext = new FXContext(surface, stage, disableDebugOutput, forceMainMemoryTransfer);
+        fxContext = new FXContext(surface, stage, disableDebugOutput, forceMainMemoryTransfer);
+        fxContext.setSettings(settings);
+        fxContext.setInputReplay(inputReplay);
         context = fxContext;
         fxContext.setSystemListener(this);
         fxContext.create();
@@ -0,0 +1,340 @@
+package com.github.glowlux.driftjme;
+
+import com.github.glowlux.driftjme.jfr.StallEvent;
+import org.eclipse.fx.drift.StandardTransferTypes;
+import org.eclipse.fx.drift.TransferType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the render loop of an {@link FXContext} from a thread of its own, for frames that stop making progress.
+ * <p>
+ * A wedged driver or DriftFX transfer can block acquiring or presenting a swapchain image indefinitely, which
+ * leaves JavaFX showing a frozen view and nothing in the log. The render thread reports each phase of a frame as
+ * it enters it. Once a phase has lasted longer than the threshold, a diagnostic snapshot is logged: the phase, the
+ * swapchain configuration, the most recent GL errors and the stacks of the render and JavaFX threads.
+ * </p>
+ * <p>
+ * With {@link #setFallbackEnabled(boolean) fallback} enabled, a stall in a transfer phase (creating the swapchain,
+ * acquiring or presenting) also makes the context rebuild its swapchain with the next available transfer type in
+ * the {@link #setTransferPreference(List) preference list}, e.g. from NVDXInterop to main memory. The render thread
+ * is interrupted to free it if it is blocked acquiring an image, and the rebuild happens as soon as the blocking
+ * call returns. Nothing is done if the frame has moved on by the time the snapshot has been logged. Every fallback is
+ * listed in {@link #getFallbacks()}. Stalls while updating or finishing the frame are the application's or the
+ * GPU's, another transfer type wouldn't help, so they are only logged.
+ * </p>
+ * Waiting for the scheduler, the JavaFX pulse or a hidden surface is not a stall.
+ *
+ * @author glowlux
+ */
+public final class StallWatchdog {
+
+    private static final Logger LOGGER = Logger.getLogger(StallWatchdog.class.getName());
+
+    private static final int GL_ERROR_HISTORY = 8;
+
+    public enum Phase {
+        /** Between frames, waiting for its turn to render, or suspended. */
+        IDLE,
+        /** Creating or disposing the swapchain. */
+        SWAPCHAIN,
+        /** Acquiring a swapchain image. */
+        ACQUIRE,
+        /** Updating and rendering the application. */
+        UPDATE,
+        /** Copying the sRGB colour buffer into the swapchain image, if one is in use, and unbinding the surface framebuffer. */
+        FINISH,
+        /** Presenting the swapchain image to JavaFX. */
+        PRESENT
+    }
+
+    private volatile boolean enabled = true;
+    private volatile long thresholdNanos = TimeUnit.SECONDS.toNanos(2);
+    private volatile boolean fallbackEnabled = false;
+    private volatile List<TransferType> transferPreference = Collections.unmodifiableList(Arrays.asList(
+            StandardTransferTypes.IOSurface, StandardTransferTypes.NVDXInterop, StandardTransferTypes.MainMemory));
+
+    private volatile Phase phase = Phase.IDLE;
+    private volatile long phaseStartNanos = System.nanoTime();
+    private volatile long phaseSequence;
+    private final int[] glErrors = new int[GL_ERROR_HISTORY]; // guarded by itself.
+    private int glErrorCount;
+
+    private volatile boolean fallbackRequested;
+    private volatile Phase stalledPhase;
+    private volatile long stalledNanos;
+    private volatile long stallCount;
+    private final List<Fallback> fallbacks = new CopyOnWriteArrayList<>();
+
+    private Thread thread;
+    private volatile Thread renderThread;
+    private volatile Supplier<String> configDescription = () -> "";
+
+    StallWatchdog() {}
+
+    /**
+     * @param enabled false to stop watching, enabled by default.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set how long one phase of a frame may take before it is treated as a stall.
+     * @param thresholdNanos the threshold in nanoseconds, 2 seconds by default.
+     */
+    public void setThresholdNanos(long thresholdNanos) {
+        if (thresholdNanos <= 0) throw new IllegalArgumentException("threshold must be positive");
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * @param fallbackEnabled true to rebuild the swapchain with the next transfer type after a stall, false by
+     *                        default.
+     */
+    public void setFallbackEnabled(boolean fallbackEnabled) {
+        this.fallbackEnabled = fallbackEnabled;
+    }
+
+    public boolean isFallbackEnabled() {
+        return fallbackEnabled;
+    }
+
+    /**
+     * Set the order transfer types are fallen back through. Unavailable types are skipped.
+     * @param transferPreference the transfer types, most preferred first. IOSurface, NVDXInterop then main memory by
+     *                           default.
+     */
+    public void setTransferPreference(List<TransferType> transferPreference) {
+        this.transferPreference = Collections.unmodifiableList(new ArrayList<>(transferPreference));
+    }
+
+    public List<TransferType> getTransferPreference() {
+        return transferPreference;
+    }
+
+    /**
+     * @return the phase the render loop is in.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the number of stalls detected.
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * @return every transfer type fallback made, oldest first.
+     */
+    public List<Fallback> getFallbacks() {
+        return Collections.unmodifiableList(fallbacks);
+    }
+
+    void start(Thread renderThread, Supplier<String> configDescription) {
+        this.renderThread = renderThread;
+        this.configDescription = configDescription;
+        thread = new Thread(this::watch, "DriftJME watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Report that the render thread has entered a phase.
+     */
+    void enter(Phase phase) {
+        phaseStartNanos = System.nanoTime();
+        this.phase = phase;
+        phaseSequence++;
+    }
+
+    /**
+     * Report a GL error read on the render thread, kept for the next diagnostic snapshot.
+     */
+    void glError(int error) {
+        synchronized (glErrors) {
+            glErrors[glErrorCount++ % GL_ERROR_HISTORY] = error;
+        }
+    }
+
+    /**
+     * @return true if a stall has asked for a transfer type fallback that hasn't been taken yet.
+     */
+    boolean isFallbackRequested() {
+        return fallbackRequested;
+    }
+
+    /**
+     * @return true, once, if a stall has asked for a transfer type fallback.
+     */
+    boolean takeFallbackRequest() {
+        if (!fallbackRequested) return false;
+        fallbackRequested = false;
+        return true;
+    }
+
+    /**
+     * @return the next available transfer type after the given one in the preference list, or null if there is none.
+     */
+    TransferType nextTransferType(TransferType current) {
+        List<TransferType> preference = transferPreference;
+        int index = preference.indexOf(current);
+        for (int i = index + 1; i < preference.size(); i++) {
+            if (preference.get(i).isAvailable()) return preference.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Record a fallback the render thread has made for the last stall.
+     */
+    void fellBack(TransferType from, TransferType to) {
+        Fallback fallback = new Fallback(System.currentTimeMillis(), from, to, stalledPhase, stalledNanos);
+        fallbacks.add(fallback);
+        LOGGER.warning("Render loop stalled, falling back: " + fallback);
+    }
+
+    private void watch() {
+        long reportedSequence = -1;
+        while (!Thread.currentThread().isInterrupted()) {
+            long threshold = thresholdNanos;
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(TimeUnit.MILLISECONDS.toNanos(10), threshold / 4));
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Phase current = phase;
+            long sequence = phaseSequence;
+            long stalled = System.nanoTime() - phaseStartNanos;
+            if (!enabled || current == Phase.IDLE || stalled < threshold || sequence == reportedSequence) continue;
+            reportedSequence = sequence; // one report per stall.
+            stallCount++;
+
+            LOGGER.log(Level.SEVERE, snapshot(current, stalled));
+
+            // the snapshot takes a while, the frame may have got going again meanwhile and must not be disturbed.
+            boolean fallback = fallbackEnabled && isTransferPhase(current) && phaseSequence == sequence;
+            StallEvent event = new StallEvent();
+            event.record(current.name(), stalled, fallback);
+            if (fallback) {
+                stalledPhase = current;
+                stalledNanos = stalled;
+                fallbackRequested = true;
+                Thread render = renderThread;
+                // acquiring is the one blocking DriftFX call known to give up on interrupt, others are waited out.
+                if (render != null && current == Phase.ACQUIRE && phaseSequence == sequence) render.interrupt();
+            }
+        }
+    }
+
+    private static boolean isTransferPhase(Phase phase) {
+        return phase == Phase.ACQUIRE || phase == Phase.PRESENT || phase == Phase.SWAPCHAIN;
+    }
+
+    private String snapshot(Phase current, long stalled) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Render loop stalled in ").append(current).append(" for ")
+                .append(TimeUnit.NANOSECONDS.toMillis(stalled)).append("ms.\n");
+        builder.append(" * Swapchain: ").append(configDescription.get()).append('\n');
+        builder.append(" * Recent GL errors: ");
+        synchronized (glErrors) {
+            if (glErrorCount == 0) builder.append("none");
+            for (int i = Math.max(0, glErrorCount - GL_ERROR_HISTORY); i < glErrorCount; i++) {
+                builder.append("0x").append(Integer.toHexString(glErrors[i % GL_ERROR_HISTORY])).append(' ');
+            }
+        }
+        builder.append('\n');
+
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            Thread stackThread = entry.getKey();
+            if (stackThread != renderThread && !stackThread.getName().equals("JavaFX Application Thread")) continue;
+            builder.append(" * \"").append(stackThread.getName()).append("\" ").append(stackThread.getState()).append('\n');
+            for (StackTraceElement element : entry.getValue()) {
+                builder.append("       at ").append(element).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A swapchain rebuilt with another transfer type after a stall.
+     */
+    public static final class Fallback {
+
+        private final long timeMillis;
+        private final TransferType from;
+        private final TransferType to;
+        private final Phase phase;
+        private final long stalledNanos;
+
+        Fallback(long timeMillis, TransferType from, TransferType to, Phase phase, long stalledNanos) {
+            this.timeMillis = timeMillis;
+            this.from = from;
+            this.to = to;
+            this.phase = phase;
+            this.stalledNanos = stalledNanos;
+        }
+
+        /**
+         * @return when the fallback was made, in milliseconds since the epoch.
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public TransferType getFrom() {
+            return from;
+        }
+
+        public TransferType getTo() {
+            return to;
+        }
+
+        /**
+         * @return the phase the render loop had stalled in.
+         */
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return how long the render loop had stalled for, in nanoseconds.
+         */
+        public long getStalledNanos() {
+            return stalledNanos;
+        }
+
+        @Override
+        public String toString() {
+            return from + " -> " + to + " after " + TimeUnit.NANOSECONDS.toMillis(stalledNanos) + "ms in " + phase;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.glowlux.driftjme;
+
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL21.GL_SRGB8_ALPHA8;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.glFramebufferTexture;
+import static org.lwjgl.opengl.GL42.GL_TEXTURE_IMMUTABLE_FORMAT;
+import static org.lwjgl.opengl.GL43.glTextureView;
+
+/**
+ * The framebuffer JME renders into. The depth/stencil attachment lives as long as the swapchain, while the colour
+ * attachment is switched to whichever swapchain image was acquired for the frame.
+ * <p>
+ * The GL framebuffer is also exposed to JME as a {@link FrameBuffer} (see {@link #getJmeFrameBuffer()}) so it can be
+ * installed as the renderer's main framebuffer. JME then binds it itself whenever a viewport renders to the screen,
+ * which is what lets the last pass of a {@code FilterPostProcessor} write straight into the swapchain image.
+ * </p>
+ * <p>
+ * For sRGB output the colour attachment must have an sRGB format for {@code GL_FRAMEBUFFER_SRGB} to have any effect,
+ * but DriftFX allocates plain RGBA8 images. If the images have immutable storage, an sRGB texture view of each image
+ * is attached instead, which costs nothing. Otherwise JME renders into an sRGB renderbuffer that is blitted (a raw
+ * copy, no shader pass) into the swapchain image by {@link #finish()}.
+ * </p>
+ * Must only be used on the render thread.
+ *
+ * @author glowlux
+ */
+final class SurfaceFramebuffer {
+
+    private static final Logger LOGGER = Logger.getLogger(SurfaceFramebuffer.class.getName());
+
+    private final int width;
+    private final int height;
+    private final DepthStencilFormat depthFormat;
+    private final DepthStencilStorage depthStorage;
+    private final boolean srgb;
+
+    private final int framebuffer;
+    private final int depthId;
+    private final FrameBuffer jmeFrameBuffer;
+    private final Texture2D jmeDepthTexture;
+    private int colorTexture = 0;
+    private boolean checked = false;
+
+    // sRGB output, see class docs.
+    private final Map<Integer, Integer> srgbViews = new HashMap<>();
+    private int srgbColorBuffer = 0;
+    private int resolveFramebuffer = 0;
+
+    private final GpuResourceTracker resources;
+    private final GpuResourceTracker.Scope scope;
+    private final List<GpuResourceTracker.Allocation> allocations = new ArrayList<>();
+
+    SurfaceFramebuffer(int width, int height, DepthStencilFormat depthFormat, DepthStencilStorage depthStorage, boolean srgb,
+                       GpuResourceTracker resources, GpuResourceTracker.Scope scope) {
+        this.resources = resources;
+        this.scope = scope;
+        this.width = width;
+        this.height = height;
+        this.depthFormat = depthFormat;
+        this.depthStorage = depthStorage;
+        this.srgb = srgb;
+
+        framebuffer = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        track(GpuResourceTracker.Category.FRAMEBUFFER, 0);
+
+        if (depthFormat == DepthStencilFormat.NONE) {
+            depthId = 0;
+        } else if (depthStorage == DepthStencilStorage.RENDERBUFFER) {
+            depthId = glGenRenderbuffers();
+            glBindRenderbuffer(GL_RENDERBUFFER, depthId);
+            glRenderbufferStorage(GL_RENDERBUFFER, depthFormat.internalFormat, width, height);
+            glBindRenderbuffer(GL_RENDERBUFFER, 0);
+            glFramebufferRenderbuffer(GL_FRAMEBUFFER, depthFormat.attachment, GL_RENDERBUFFER, depthId);
+        } else {
+            depthId = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, depthId);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+            glTexImage2D(GL_TEXTURE_2D, 0, depthFormat.internalFormat, width, height, 0, depthFormat.pixelFormat, depthFormat.pixelType, (ByteBuffer) null);
+            glBindTexture(GL_TEXTURE_2D, 0);
+            glFramebufferTexture(GL_FRAMEBUFFER, depthFormat.attachment, depthId, 0);
+        }
+
+        if (depthId != 0) {
+            track(GpuResourceTracker.Category.DEPTH_BUFFER, (long) width * height * depthFormat.getBytesPerPixel());
+        }
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+
+        // describes the GL framebuffer to JME without JME ever creating or attaching anything itself.
+        jmeFrameBuffer = new FrameBuffer(width, height, 1);
+        jmeFrameBuffer.setColorBuffer(Image.Format.RGBA8);
+        jmeFrameBuffer.setSrgb(srgb);
+        jmeFrameBuffer.setId(framebuffer);
+        jmeFrameBuffer.clearUpdateNeeded();
+
+        jmeDepthTexture = depthStorage == DepthStencilStorage.TEXTURE && depthId != 0 ? wrapDepthTexture() : null;
+    }
+
+    /**
+     * Describe the depth texture to JME the same way, so materials can sample it without JME uploading anything.
+     */
+    private Texture2D wrapDepthTexture() {
+        Image image = new Image(toJmeFormat(depthFormat), width, height, null, ColorSpace.Linear);
+        image.setId(depthId);
+        image.clearUpdateNeeded();
+        Texture2D texture = new Texture2D(image);
+        texture.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        texture.setMagFilter(Texture.MagFilter.Nearest);
+        return texture;
+    }
+
+    private static Image.Format toJmeFormat(DepthStencilFormat format) {
+        switch (format) {
+            case DEPTH16: return Image.Format.Depth16;
+            case DEPTH24: return Image.Format.Depth24;
+            case DEPTH24_STENCIL8: return Image.Format.Depth24Stencil8;
+            default: return Image.Format.Depth32F; // JME has no 32F + stencil format, only the depth is sampled anyway.
+        }
+    }
+
+    /**
+     * Bind the framebuffer with the given swapchain texture as its colour attachment.
+     * This matches the binding the renderer expects while its main framebuffer is overridden with this one.
+     * @param texture the GL name of the swapchain image.
+     */
+    void bind(int texture) {
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        if (texture != colorTexture) {
+            colorTexture = texture;
+            if (!srgb) {
+                glFramebufferTexture(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, texture, 0);
+            } else if (resolveFramebuffer == 0) {
+                Integer view = srgbViews.get(texture);
+                if (view == null) {
+                    view = createSrgbView(texture);
+                    srgbViews.put(texture, view);
+                    if (view != 0) track(GpuResourceTracker.Category.TEXTURE_VIEW, 0); // shares the image's storage.
+                }
+                if (view != 0) {
+                    glFramebufferTexture(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, view, 0);
+                } else {
+                    createResolveTarget();
+                }
+            }
+        }
+
+        if (!checked) { // the attachments only change format when the framebuffer is recreated, so check once.
+            checked = true;
+            int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+            if (status != GL_FRAMEBUFFER_COMPLETE) {
+                LOGGER.severe("Framebuffer incomplete (0x" + Integer.toHexString(status) + ") with depth/stencil " + depthFormat + " as " + depthStorage + ".");
+            }
+        }
+    }
+
+    /**
+     * Finish the frame, copying the sRGB colour buffer into the swapchain image if one is in use, and unbind.
+     */
+    void finish() {
+        if (resolveFramebuffer != 0) {
+            glBindFramebuffer(GL_READ_FRAMEBUFFER, framebuffer);
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, resolveFramebuffer);
+            glFramebufferTexture(GL_DRAW_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, colorTexture, 0);
+
+            // with GL_FRAMEBUFFER_SRGB disabled the blit copies the encoded values as they are.
+            boolean srgbEnabled = glIsEnabled(GL_FRAMEBUFFER_SRGB);
+            if (srgbEnabled) glDisable(GL_FRAMEBUFFER_SRGB);
+            glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+            if (srgbEnabled) glEnable(GL_FRAMEBUFFER_SRGB);
+        }
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    /**
+     * @return an sRGB view of the swapchain texture, or 0 if the texture can't have views.
+     */
+    private static int createSrgbView(int texture) {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL43 && !caps.GL_ARB_texture_view) return 0;
+
+        int previous = glGetInteger(GL_TEXTURE_BINDING_2D); // restored so the renderer's texture cache stays valid.
+        glBindTexture(GL_TEXTURE_2D, texture);
+        boolean immutable = glGetTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_IMMUTABLE_FORMAT) == GL_TRUE;
+        int internalFormat = glGetTexLevelParameteri(GL_TEXTURE_2D, 0, GL_TEXTURE_INTERNAL_FORMAT);
+        glBindTexture(GL_TEXTURE_2D, previous);
+
+        if (!immutable || internalFormat != GL_RGBA8) return 0;
+
+        int view = glGenTextures();
+        glTextureView(view, GL_TEXTURE_2D, texture, GL_SRGB8_ALPHA8, 0, 1, 0, 1);
+        return view;
+    }
+
+    private void createResolveTarget() {
+        LOGGER.fine("Swapchain images can't have sRGB views, rendering through an sRGB colour buffer instead.");
+        srgbColorBuffer = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, srgbColorBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_SRGB8_ALPHA8, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, srgbColorBuffer);
+        track(GpuResourceTracker.Category.COLOR_BUFFER, (long) width * height * 4);
+
+        resolveFramebuffer = glGenFramebuffers();
+        track(GpuResourceTracker.Category.FRAMEBUFFER, 0);
+    }
+
+    private void track(GpuResourceTracker.Category category, long size) {
+        allocations.add(resources.allocate(scope, category, 1, size));
+    }
+
+    boolean matches(int width, int height, DepthStencilFormat depthFormat, DepthStencilStorage depthStorage, boolean srgb) {
+        return this.width == width && this.height == height
+                && this.depthFormat == depthFormat && this.depthStorage == depthStorage
+                && this.srgb == srgb;
+    }
+
+    /**
+     * @return the JME view of this framebuffer, for {@code Renderer.setMainFrameBufferOverride}.
+     */
+    FrameBuffer getJmeFrameBuffer() {
+        return jmeFrameBuffer;
+    }
+
+    /**
+     * @return the JME view of the depth texture, or null if the depth attachment isn't a texture.
+     */
+    Texture2D getJmeDepthTexture() {
+        return jmeDepthTexture;
+    }
+
+    void dispose() {
+        glDeleteFramebuffers(framebuffer);
+        if (depthId != 0) {
+            if (depthStorage == DepthStencilStorage.RENDERBUFFER) {
+                glDeleteRenderbuffers(depthId);
+            } else {
+                glDeleteTextures(depthId);
+            }
+        }
+        for (int view : srgbViews.values()) {
+            if (view != 0) glDeleteTextures(view);
+        }
+        srgbViews.clear();
+        if (resolveFramebuffer != 0) {
+            glDeleteFramebuffers(resolveFramebuffer);
+            glDeleteRenderbuffers(srgbColorBuffer);
+        }
+        for (GpuResourceTracker.Allocation allocation : allocations) {
+            allocation.release();
+        }
+        allocations.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.glowlux.driftjme;
+
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import org.eclipse.fx.drift.DriftFXSurface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks whether a {@link DriftFXSurface} can actually be seen, that is it is attached to a showing,
+ * non-iconified window, every node up its parent chain is visible and it has a non-zero size.
+ * Hidden tabs of a TabPane are covered by the parent chain check, as the skin hides unselected content.
+ * All methods except {@link #isVisible()} must be called on the JavaFX thread.
+ *
+ * @author glowlux
+ */
+final class SurfaceVisibilityTracker {
+
+    private final DriftFXSurface surface;
+    private final Runnable onChange;
+
+    private final List<Node> boundNodes = new ArrayList<>();
+    private Scene boundScene;
+    private Window boundWindow;
+
+    private volatile boolean visible = false;
+
+    // structural changes (re-parenting, scene or window swaps) need the listener chain rebuilt, anything else just a re-check.
+    private final InvalidationListener structureListener = observable -> rebind();
+    private final InvalidationListener stateListener = observable -> refresh();
+
+    /**
+     * @param surface the surface to track.
+     * @param onChange called on the JavaFX thread whenever the effective visibility changes.
+     */
+    SurfaceVisibilityTracker(DriftFXSurface surface, Runnable onChange) {
+        this.surface = surface;
+        this.onChange = onChange;
+    }
+
+    void install() {
+        surface.sceneProperty().addListener(structureListener);
+        surface.layoutBoundsProperty().addListener(stateListener);
+        rebind();
+    }
+
+    void dispose() {
+        surface.sceneProperty().removeListener(structureListener);
+        surface.layoutBoundsProperty().removeListener(stateListener);
+        unbind();
+    }
+
+    /**
+     * @return true if the surface is currently visible to the user, safe to call from any thread.
+     */
+    boolean isVisible() {
+        return visible;
+    }
+
+    private void rebind() {
+        unbind();
+
+        for (Node node = surface; node != null; node = node.getParent()) {
+            node.visibleProperty().addListener(stateListener);
+            node.parentProperty().addListener(structureListener);
+            boundNodes.add(node);
+        }
+
+        boundScene = surface.getScene();
+        if (boundScene != null) {
+            boundScene.windowProperty().addListener(structureListener);
+            boundWindow = boundScene.getWindow();
+        }
+
+        if (boundWindow != null) {
+            boundWindow.showingProperty().addListener(stateListener);
+            if (boundWindow instanceof Stage) {
+                ((Stage) boundWindow).iconifiedProperty().addListener(stateListener);
+            }
+        }
+
+        refresh();
+    }
+
+    private void unbind() {
+        for (Node node : boundNodes) {
+            node.visibleProperty().removeListener(stateListener);
+            node.parentProperty().removeListener(structureListener);
+        }
+        boundNodes.clear();
+
+        if (boundScene != null) {
+            boundScene.windowProperty().removeListener(structureListener);
+            boundScene = null;
+        }
+
+        if (boundWindow != null) {
+            boundWindow.showingProperty().removeListener(stateListener);
+            if (boundWindow instanceof Stage) {
+                ((Stage) boundWindow).iconifiedProperty().removeListener(stateListener);
+            }
+            boundWindow = null;
+        }
+    }
+
+    private void refresh() {
+        boolean nowVisible = computeVisible();
+        if (nowVisible != visible) {
+            visible = nowVisible;
+            onChange.run();
+        }
+    }
+
+    private boolean computeVisible() {
+        Scene scene = surface.getScene();
+        if (scene == null) return false;
+
+        Window window = scene.getWindow();
+        if (window == null || !window.isShowing()) return false;
+        if (window instanceof Stage && ((Stage) window).isIconified()) return false;
+
+        for (Node node = surface; node != null; node = node.getParent()) {
+            if (!node.isVisible()) return false;
+        }
+
+        Bounds bounds = surface.getLayoutBounds();
+        return bounds.getWidth() > 0 && bounds.getHeight() > 0;
+    }
+}
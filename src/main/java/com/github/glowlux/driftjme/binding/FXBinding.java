@@ -0,0 +1,93 @@
+package com.github.glowlux.driftjme.binding;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+
+/**
+ * A one-way binding from one or more JavaFX observables to something in the JME scene.
+ * <p>
+ * When a source changes, {@link #capture()} is called on the JavaFX thread to copy the new value into fields of the
+ * binding, and the binding is marked dirty. Once per frame, the {@link FXBindingManager} calls {@link #apply()} on the
+ * render thread for every dirty binding. However many times a source changes within a frame, only the latest captured
+ * value is applied. Subclasses should capture into preallocated fields so that a change doesn't allocate.
+ * </p>
+ * Capture and apply are called while holding this binding's monitor, so they never see each other's partial state.
+ *
+ * @author glowlux
+ */
+public abstract class FXBinding {
+
+    private final Observable[] sources;
+    private final InvalidationListener listener = observable -> invalidated();
+
+    private FXBindingManager manager;
+    private boolean queued;
+    private volatile boolean bound;
+
+    protected FXBinding(Observable... sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Copy the current value of the sources into this binding, called on the JavaFX thread.
+     */
+    protected abstract void capture();
+
+    /**
+     * Apply the last captured value to the scene, called on the render thread.
+     */
+    protected abstract void apply();
+
+    /**
+     * @return true while this binding is attached to a manager.
+     */
+    public boolean isBound() {
+        return bound;
+    }
+
+    /**
+     * Stop listening to the sources. Values still waiting to be applied are discarded rather than applied.
+     */
+    public void unbind() {
+        FXBindingManager current = manager;
+        if (current != null) current.unbind(this);
+    }
+
+    // called on the JavaFX thread by the manager
+    void attach(FXBindingManager manager) {
+        this.manager = manager;
+        bound = true;
+        for (Observable source : sources) {
+            source.addListener(listener);
+        }
+        invalidated(); // push the initial value.
+    }
+
+    // called on the JavaFX thread by the manager
+    void detach() {
+        for (Observable source : sources) {
+            source.removeListener(listener);
+        }
+        bound = false;
+        manager = null;
+    }
+
+    private void invalidated() {
+        FXBindingManager current = manager;
+        if (current == null) return;
+        synchronized (this) {
+            capture();
+            if (queued) return;
+            queued = true;
+        }
+        current.markDirty(this);
+    }
+
+    // called on the render thread by the manager
+    void flush() {
+        synchronized (this) {
+            queued = false;
+            if (bound) apply();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.github.glowlux.driftjme.binding;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.scene.Spatial;
+import javafx.application.Platform;
+import javafx.beans.value.ObservableBooleanValue;
+import javafx.beans.value.ObservableNumberValue;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * Applies {@link FXBinding}s to the scene once per frame, during the update of this app state.
+ * <p>
+ * Changes only ever mark a binding dirty, so a slider dragged through hundreds of values in a frame costs a single
+ * apply. Dirty bindings are collected into a pair of arrays that are swapped each frame, which means no allocation
+ * per change and a per-frame cost proportional to the number of bindings that actually changed.
+ * </p>
+ *
+ * <pre>
+ * FXBindingManager bindings = new FXBindingManager();
+ * stateManager.attach(bindings);
+ * bindings.bindTranslation(boxGeom, xSlider.valueProperty(), ySlider.valueProperty(), zSlider.valueProperty());
+ * bindings.bindColor(mat, "Color", colorPicker.valueProperty());
+ * </pre>
+ *
+ * @author glowlux
+ */
+public class FXBindingManager extends AbstractAppState {
+
+    private final Object dirtyLock = new Object();
+    private FXBinding[] pending = new FXBinding[64];
+    private int pendingCount;
+    private FXBinding[] applying = new FXBinding[64];
+
+    private volatile int bindingCount;
+    private volatile int lastAppliedCount;
+
+    /**
+     * Start applying the binding. Safe to call from any thread, listeners are added on the JavaFX thread.
+     * @param binding the binding to attach.
+     * @param <T> the type of binding.
+     * @return the binding.
+     */
+    public <T extends FXBinding> T bind(T binding) {
+        runOnFxThread(() -> {
+            if (binding.isBound()) throw new IllegalStateException("Binding is already bound.");
+            bindingCount++;
+            binding.attach(this);
+        });
+        return binding;
+    }
+
+    /**
+     * Stop applying the binding. Safe to call from any thread.
+     * @param binding the binding to detach.
+     */
+    public void unbind(FXBinding binding) {
+        runOnFxThread(() -> {
+            if (!binding.isBound()) return;
+            binding.detach();
+            bindingCount--;
+        });
+    }
+
+    /**
+     * Bind the local translation of a spatial.
+     */
+    public FXBinding bindTranslation(Spatial spatial, ObservableNumberValue x, ObservableNumberValue y, ObservableNumberValue z) {
+        return bind(new FXBinding(x, y, z) {
+            private float tx, ty, tz;
+
+            @Override
+            protected void capture() {
+                tx = x.floatValue();
+                ty = y.floatValue();
+                tz = z.floatValue();
+            }
+
+            @Override
+            protected void apply() {
+                spatial.setLocalTranslation(tx, ty, tz);
+            }
+        });
+    }
+
+    /**
+     * Bind the local rotation of a spatial to euler angles, in degrees.
+     */
+    public FXBinding bindRotation(Spatial spatial, ObservableNumberValue xAngle, ObservableNumberValue yAngle, ObservableNumberValue zAngle) {
+        return bind(new FXBinding(xAngle, yAngle, zAngle) {
+            private final Quaternion rotation = new Quaternion();
+            private float rx, ry, rz;
+
+            @Override
+            protected void capture() {
+                rx = xAngle.floatValue() * FastMath.DEG_TO_RAD;
+                ry = yAngle.floatValue() * FastMath.DEG_TO_RAD;
+                rz = zAngle.floatValue() * FastMath.DEG_TO_RAD;
+            }
+
+            @Override
+            protected void apply() {
+                spatial.setLocalRotation(rotation.fromAngles(rx, ry, rz));
+            }
+        });
+    }
+
+    /**
+     * Bind the uniform local scale of a spatial.
+     */
+    public FXBinding bindScale(Spatial spatial, ObservableNumberValue scale) {
+        return bind(new FXBinding(scale) {
+            private float s;
+
+            @Override
+            protected void capture() {
+                s = scale.floatValue();
+            }
+
+            @Override
+            protected void apply() {
+                spatial.setLocalScale(s);
+            }
+        });
+    }
+
+    /**
+     * Bind the visibility of a spatial, hidden spatials are culled.
+     */
+    public FXBinding bindVisible(Spatial spatial, ObservableBooleanValue visible) {
+        return bind(new FXBinding(visible) {
+            private boolean v;
+
+            @Override
+            protected void capture() {
+                v = visible.get();
+            }
+
+            @Override
+            protected void apply() {
+                spatial.setCullHint(v ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+            }
+        });
+    }
+
+    /**
+     * Bind a color material parameter, e.g. "Color" of Unshaded.j3md or "Diffuse" of Lighting.j3md.
+     */
+    public FXBinding bindColor(Material material, String parameter, ObservableValue<Color> color) {
+        return bind(new FXBinding(color) {
+            private final ColorRGBA value = new ColorRGBA();
+            private float r, g, b, a;
+
+            @Override
+            protected void capture() {
+                Color c = color.getValue();
+                if (c == null) c = Color.TRANSPARENT;
+                r = (float) c.getRed();
+                g = (float) c.getGreen();
+                b = (float) c.getBlue();
+                a = (float) c.getOpacity();
+            }
+
+            @Override
+            protected void apply() {
+                material.setColor(parameter, value.set(r, g, b, a));
+            }
+        });
+    }
+
+    /**
+     * Bind a float material parameter, e.g. "Shininess" of Lighting.j3md.
+     */
+    public FXBinding bindFloat(Material material, String parameter, ObservableNumberValue number) {
+        return bind(new FXBinding(number) {
+            private float f;
+
+            @Override
+            protected void capture() {
+                f = number.floatValue();
+            }
+
+            @Override
+            protected void apply() {
+                material.setFloat(parameter, f);
+            }
+        });
+    }
+
+    /**
+     * @return the number of bindings currently bound.
+     */
+    public int getBindingCount() {
+        return bindingCount;
+    }
+
+    /**
+     * @return the number of bindings applied during the last frame.
+     */
+    public int getLastAppliedCount() {
+        return lastAppliedCount;
+    }
+
+    // called by bindings on the JavaFX thread, at most once per binding until it is flushed.
+    void markDirty(FXBinding binding) {
+        synchronized (dirtyLock) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingCount++] = binding;
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+
+        FXBinding[] batch;
+        int count;
+        synchronized (dirtyLock) {
+            batch = pending;
+            count = pendingCount;
+            pending = applying.length >= batch.length ? applying : new FXBinding[batch.length];
+            pendingCount = 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            batch[i].flush();
+            batch[i] = null;
+        }
+        applying = batch;
+        lastAppliedCount = count;
+    }
+
+    private static void runOnFxThread(Runnable runnable) {
+        if (Platform.isFxApplicationThread()) {
+            runnable.run();
+        } else {
+            Platform.runLater(runnable);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.jme3.input.KeyInput;
 import com.jme3.input.RawInputListener;
 import com.jme3.input.event.KeyInputEvent;
 import com.github.glowlux.driftjme.FXContext;
+import com.github.glowlux.driftjme.InputLatencyTracker;
+import com.github.glowlux.driftjme.jfr.InputBatchEvent;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
 import org.eclipse.fx.drift.DriftFXSurface;
@@ -25,6 +27,10 @@ public class FXKeyInput implements KeyInput {
     private final Queue<KeyInputEvent> keyInputEvents = new ConcurrentLinkedQueue<>();
 
     private RawInputListener listener;
+
+    private final long[] keysDown = new long[KeyboardState.KEY_COUNT / 64]; // render thread only.
+    private volatile KeyboardState state = KeyboardState.EMPTY;
+
     private boolean initialised = false;
 
     public FXKeyInput(FXContext fxContext, Stage stage, DriftFXSurface surface) {
@@ -59,9 +65,36 @@ public class FXKeyInput implements KeyInput {
     }
     @Override
     public void update() {
+        if (keyInputEvents.isEmpty()) return;
+
+        InputBatchEvent batchEvent = new InputBatchEvent();
+        batchEvent.begin();
+        InputLatencyTracker latency = fxContext.getInputLatency();
+        long now = getInputTimeNanos();
+        long oldest = keyInputEvents.peek().getTime();
+        int count = 0;
         while (!keyInputEvents.isEmpty()) {
-            listener.onKeyEvent(keyInputEvents.poll());
+            KeyInputEvent event = keyInputEvents.poll();
+            latency.dispatched(event.getTime(), now);
+            listener.onKeyEvent(event);
+            int code = event.getKeyCode();
+            if (code >= 0 && code < KeyboardState.KEY_COUNT) {
+                if (event.isPressed()) keysDown[code >>> 6] |= 1L << code;
+                else keysDown[code >>> 6] &= ~(1L << code);
+            }
+            count++;
         }
+        if (!state.matches(keysDown)) state = new KeyboardState(keysDown.clone());
+        batchEvent.record("keyboard", count, now - oldest);
+    }
+
+    /**
+     * The keys held as of the most recent update, published atomically once per frame. Safe to call from any
+     * thread, and cheap enough to poll every frame.
+     * @return the keyboard state.
+     */
+    public KeyboardState getState() {
+        return state;
     }
 
     @Override
@@ -6,22 +6,31 @@ import com.jme3.input.RawInputListener;
 import com.jme3.input.event.MouseButtonEvent;
 import com.jme3.input.event.MouseMotionEvent;
 import com.github.glowlux.driftjme.FXContext;
+import com.github.glowlux.driftjme.InputLatencyTracker;
+import com.github.glowlux.driftjme.jfr.InputBatchEvent;
 import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Cursor;
+import javafx.scene.ImageCursor;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.robot.Robot;
 import javafx.stage.Stage;
 import org.eclipse.fx.drift.DriftFXSurface;
 
+import java.nio.IntBuffer;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Translates JavaFX mouse input to JME mouse events.
@@ -43,8 +52,22 @@ public class FXMouseInput implements MouseInput {
     private final AtomicBoolean cursorNeedsUnhiding = new AtomicBoolean(false);
     private final AtomicBoolean needsLockPosition = new AtomicBoolean(false);
 
+    // converted once per JmeCursor instance, JmeCursor doesn't override equals so this is keyed by identity.
+    private final Map<JmeCursor, ImageCursor> nativeCursors = Collections.synchronizedMap(new IdentityHashMap<>());
+    private volatile Cursor nativeCursor = Cursor.DEFAULT;
+
+    // running totals of every motion delta captured, including events that haven't been dispatched yet.
+    private final AtomicLong capturedDeltaX = new AtomicLong();
+    private final AtomicLong capturedDeltaY = new AtomicLong();
+
     private RawInputListener listener;
 
+    // render thread only, the state as of the events dispatched so far.
+    private int buttonsDown;
+    private int stateX;
+    private int stateY;
+    private volatile MouseState state = MouseState.EMPTY;
+
     private int mouseX;
     private int mouseY;
     private int mouseWheel;
@@ -145,7 +168,7 @@ public class FXMouseInput implements MouseInput {
                     // process cursor appearance
                     if (cursorNeedsUnhiding.compareAndSet(true, false)) {
                         robot.mouseMove(mouseLockScreenPositionX, mouseLockScreenPositionY);
-                        surface.setCursor(Cursor.DEFAULT);
+                        surface.setCursor(nativeCursor);
                     }
                 }
             }.start();
@@ -156,18 +179,21 @@ public class FXMouseInput implements MouseInput {
     @Override
     public void initialize() {
         surface.setOnMousePressed(event -> { // handle button press
+            if (event.isSynthesized() && !isSimulatingMouse()) return;
             MouseButtonEvent buttonEvent = new MouseButtonEvent(jfxToJmeButtonMapping.get(event.getButton()), true, mouseX, mouseY);
             buttonEvent.setTime(getInputTimeNanos());
             mouseButtonEvents.add(buttonEvent);
         });
 
         surface.setOnMouseReleased(event -> { // handle button release
+            if (event.isSynthesized() && !isSimulatingMouse()) return;
             MouseButtonEvent buttonEvent = new MouseButtonEvent(jfxToJmeButtonMapping.get(event.getButton()), false, mouseX, mouseY);
             buttonEvent.setTime(getInputTimeNanos());
             mouseButtonEvents.add(buttonEvent);
         });
 
         surface.addEventHandler(ScrollEvent.ANY, event -> { // handle scrolling...
+            if (event.isDirect() && !isSimulatingMouse()) return; // a drag on a touch screen, unlike trackpad scrolls.
             double xOffset = event.getDeltaX() * WHEEL_SCALE;
             double yOffset = event.getDeltaY() * WHEEL_SCALE;
             mouseWheel += yOffset;
@@ -180,6 +206,14 @@ public class FXMouseInput implements MouseInput {
     }
 
 
+    /**
+     * @return true if JavaFX's mouse events synthesized from touches should reach JME, see
+     * {@link com.jme3.input.TouchInput#setSimulateMouse(boolean)}.
+     */
+    private boolean isSimulatingMouse() {
+        return fxContext.getTouchInput().isSimulateMouse();
+    }
+
     /**
      * Add a mouse move event
      * @param mouseLocalX the mouse local x position
@@ -192,6 +226,8 @@ public class FXMouseInput implements MouseInput {
             MouseMotionEvent motionEvent = new MouseMotionEvent(mouseLocalX, mouseLocalY, xDelta, yDelta, mouseWheel, 0);
             motionEvent.setTime(getInputTimeNanos());
             mouseMotionEvents.add(motionEvent);
+            capturedDeltaX.addAndGet(xDelta);
+            capturedDeltaY.addAndGet(yDelta);
             mouseX = mouseLocalX;
             mouseY = mouseLocalY;
         }
@@ -228,9 +264,36 @@ public class FXMouseInput implements MouseInput {
         return 3; // assume 3, we can't query this from javafx.
     }
 
+    /**
+     * Set the cursor shown over the surface. Each {@link JmeCursor} is converted to an {@link ImageCursor} once and
+     * then reused, so switching between cursors is cheap. Animated cursors show their first frame.
+     * @param cursor the cursor, or null for the default cursor.
+     */
     @Override
     public void setNativeCursor(JmeCursor cursor) {
-        throw new UnsupportedOperationException("Native cursors not supported on FXMouseInput");
+        Cursor fxCursor = cursor == null ? Cursor.DEFAULT : nativeCursors.computeIfAbsent(cursor, FXMouseInput::toImageCursor);
+        nativeCursor = fxCursor;
+        Platform.runLater(() -> {
+            if (cursorVisible.get()) surface.setCursor(fxCursor); // a hidden cursor picks it up when shown again.
+        });
+    }
+
+    /**
+     * Convert the first frame of a JME cursor, stored bottom row first as ARGB, to a JavaFX cursor.
+     */
+    private static ImageCursor toImageCursor(JmeCursor cursor) {
+        int width = cursor.getWidth();
+        int height = cursor.getHeight();
+        IntBuffer data = cursor.getImagesData();
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                argb[y * width + x] = data.get((height - 1 - y) * width + x);
+            }
+        }
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return new ImageCursor(image, cursor.getXHotSpot(), height - 1 - cursor.getYHotSpot());
     }
 
     /**
@@ -241,15 +304,80 @@ public class FXMouseInput implements MouseInput {
         this.currentHeight = currentHeight;
     }
 
+    /**
+     * The sum of every x delta captured so far, including motion still waiting to be dispatched to JME.
+     * Sampling this just before rendering and comparing with the previous sample gives the newest mouse motion
+     * without waiting a frame for it to go through the input manager. Safe to call from any thread.
+     * @return the total x motion in pixels.
+     */
+    public long getCapturedDeltaX() {
+        return capturedDeltaX.get();
+    }
+
+    /**
+     * The y equivalent of {@link #getCapturedDeltaX()}, positive upwards as in {@link MouseMotionEvent}.
+     * @return the total y motion in pixels.
+     */
+    public long getCapturedDeltaY() {
+        return capturedDeltaY.get();
+    }
+
+    /**
+     * The mouse as of the most recent update, published atomically once per frame. Safe to call from any thread,
+     * and cheap enough to poll every frame.
+     * @return the mouse state.
+     */
+    public MouseState getState() {
+        return state;
+    }
+
+    private void publishState(int deltaX, int deltaY, int deltaWheel) {
+        if (!state.matches(buttonsDown, stateX, stateY, deltaX, deltaY, deltaWheel)) {
+            state = new MouseState(buttonsDown, stateX, stateY, deltaX, deltaY, deltaWheel);
+        }
+    }
+
     @Override
     public void update() {
+        if (mouseMotionEvents.isEmpty() && mouseButtonEvents.isEmpty()) {
+            publishState(0, 0, 0); // last frame's motion is over.
+            return;
+        }
+
+        InputBatchEvent batchEvent = new InputBatchEvent();
+        batchEvent.begin();
+        InputLatencyTracker latency = fxContext.getInputLatency();
+        long now = getInputTimeNanos();
+        long oldest = now;
+        int count = 0;
+        int deltaX = 0, deltaY = 0, deltaWheel = 0;
+
+        if (!mouseMotionEvents.isEmpty()) oldest = Math.min(oldest, mouseMotionEvents.peek().getTime());
         while (!mouseMotionEvents.isEmpty()) {
-            listener.onMouseMotionEvent(mouseMotionEvents.poll());
+            MouseMotionEvent event = mouseMotionEvents.poll();
+            latency.dispatched(event.getTime(), now);
+            listener.onMouseMotionEvent(event);
+            deltaX += event.getDX();
+            deltaY += event.getDY();
+            deltaWheel += event.getDeltaWheel();
+            stateX = event.getX();
+            stateY = event.getY();
+            count++;
         }
 
+        if (!mouseButtonEvents.isEmpty()) oldest = Math.min(oldest, mouseButtonEvents.peek().getTime());
         while (!mouseButtonEvents.isEmpty()) {
-            listener.onMouseButtonEvent(mouseButtonEvents.poll());
+            MouseButtonEvent event = mouseButtonEvents.poll();
+            latency.dispatched(event.getTime(), now);
+            listener.onMouseButtonEvent(event);
+            int button = event.getButtonIndex();
+            if (button >= 0 && button < 32) {
+                buttonsDown = event.isPressed() ? buttonsDown | 1 << button : buttonsDown & ~(1 << button);
+            }
+            count++;
         }
+        publishState(deltaX, deltaY, deltaWheel);
+        batchEvent.record("mouse", count, now - oldest);
     }
 
     @Override
@@ -0,0 +1,346 @@
+package com.github.glowlux.driftjme.input;
+
+import com.github.glowlux.driftjme.FXContext;
+import com.github.glowlux.driftjme.jfr.InputBatchEvent;
+import com.jme3.input.RawInputListener;
+import com.jme3.input.TouchInput;
+import com.jme3.input.event.TouchEvent;
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.scene.input.RotateEvent;
+import javafx.scene.input.SwipeEvent;
+import javafx.scene.input.TouchPoint;
+import javafx.scene.input.ZoomEvent;
+import org.eclipse.fx.drift.DriftFXSurface;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TouchInput that translates JavaFX touch and gesture events on the surface to JME touch events.
+ * <p>
+ * Touch points become {@link TouchEvent.Type#DOWN}, {@link TouchEvent.Type#MOVE} and {@link TouchEvent.Type#UP}
+ * events with their pointer id, zoom gestures become the {@code SCALE_} events and swipes become
+ * {@link TouchEvent.Type#FLING} events with the swipe direction as their delta. JME has no rotation event, so
+ * rotate gestures are summed into {@link #getRotationDelta()} each frame instead.
+ * </p>
+ * <p>
+ * A multi-finger gesture delivers a move or zoom event per finger per pulse, which would flood the input manager.
+ * While {@link #setOmitHistoricEvents(boolean) historic events are omitted}, as they are by default, the moves of
+ * each pointer and the steps of a zoom queued during one frame are merged into one event carrying the latest
+ * position and the summed deltas. Presses and releases are always delivered in order. Events wait in a bounded
+ * queue, and are dropped and counted if the render thread falls so far behind that it fills.
+ * </p>
+ * JavaFX already synthesizes mouse events from touches, and by default they reach JME as mouse input, as on
+ * Android. Turn {@link #setSimulateMouse(boolean) mouse simulation} off to have the {@link FXMouseInput} drop them,
+ * so a touch isn't seen as both a touch and a click.
+ *
+ * @author glowlux
+ */
+public class FXTouchInput implements TouchInput {
+
+    static final int QUEUE_CAPACITY = 256;
+    static final int ZOOM_POINTER = -1; // key of the zoom event being merged into.
+
+    private final FXContext fxContext;
+    private final DriftFXSurface surface;
+
+    private final Object lock = new Object();
+    // guarded by lock.
+    private ArrayDeque<TouchEvent> queue = new ArrayDeque<>();
+    private ArrayDeque<TouchEvent> draining = new ArrayDeque<>();
+    private final Map<Integer, TouchEvent> mergeable = new HashMap<>(); // queued events later ones may merge into.
+    private float pendingRotation;
+    private int received;
+    private int coalesced;
+    private long dropped;
+
+    private final Map<Integer, float[]> lastPositions = new HashMap<>(); // of each pointer down, JavaFX thread only.
+
+    private volatile int currentHeight;
+    private volatile boolean simulateMouse = true;
+    private volatile boolean simulateKeyboard = false;
+    private volatile boolean omitHistoricEvents = true;
+
+    private volatile float rotationDelta;
+    private volatile int frameReceived;
+    private volatile int frameDispatched;
+    private volatile int frameCoalesced;
+    private volatile long droppedTotal;
+
+    private RawInputListener listener;
+    private boolean initialised = false;
+
+    private final EventHandler<javafx.scene.input.TouchEvent> touchHandler = this::handleTouch;
+    private final EventHandler<ZoomEvent> zoomHandler = this::handleZoom;
+    private final EventHandler<RotateEvent> rotateHandler = this::handleRotate;
+    private final EventHandler<SwipeEvent> swipeHandler = this::handleSwipe;
+
+    public FXTouchInput(FXContext fxContext, DriftFXSurface surface) {
+        this.fxContext = fxContext;
+        this.surface = surface;
+    }
+
+    @Override
+    public void initialize() {
+        Platform.runLater(() -> {
+            surface.addEventHandler(javafx.scene.input.TouchEvent.ANY, touchHandler);
+            surface.addEventHandler(ZoomEvent.ANY, zoomHandler);
+            surface.addEventHandler(RotateEvent.ANY, rotateHandler);
+            surface.addEventHandler(SwipeEvent.ANY, swipeHandler);
+        });
+        initialised = true;
+    }
+
+    @Override
+    public void destroy() {
+        Platform.runLater(() -> {
+            surface.removeEventHandler(javafx.scene.input.TouchEvent.ANY, touchHandler);
+            surface.removeEventHandler(ZoomEvent.ANY, zoomHandler);
+            surface.removeEventHandler(RotateEvent.ANY, rotateHandler);
+            surface.removeEventHandler(SwipeEvent.ANY, swipeHandler);
+        });
+        initialised = false;
+    }
+
+    /**
+     * Set the current height of the viewport (used internally for touch position calculations).
+     * @param currentHeight
+     */
+    public void setCurrentHeight(int currentHeight) {
+        this.currentHeight = currentHeight;
+    }
+
+    private void handleTouch(javafx.scene.input.TouchEvent event) {
+        TouchPoint point = event.getTouchPoint();
+        float x = (float) point.getX();
+        float y = currentHeight - (float) point.getY();
+        int pointer = point.getId();
+
+        if (event.getEventType() == javafx.scene.input.TouchEvent.TOUCH_PRESSED) {
+            lastPositions.put(pointer, new float[]{x, y});
+            queue(TouchEvent.Type.DOWN, pointer, x, y, 0, 0, null);
+        } else if (event.getEventType() == javafx.scene.input.TouchEvent.TOUCH_RELEASED) {
+            lastPositions.remove(pointer);
+            queue(TouchEvent.Type.UP, pointer, x, y, 0, 0, null);
+        } else if (event.getEventType() == javafx.scene.input.TouchEvent.TOUCH_MOVED) {
+            float[] last = lastPositions.computeIfAbsent(pointer, id -> new float[]{x, y});
+            float dx = x - last[0], dy = y - last[1];
+            last[0] = x;
+            last[1] = y;
+            queue(TouchEvent.Type.MOVE, pointer, x, y, dx, dy, pointer);
+        }
+        event.consume();
+    }
+
+    private void handleZoom(ZoomEvent event) {
+        float x = (float) event.getX();
+        float y = currentHeight - (float) event.getY();
+        float step = (float) event.getZoomFactor(); // JME's scale factor is the change since the previous event.
+        if (event.getEventType() == ZoomEvent.ZOOM_STARTED) {
+            queueScale(TouchEvent.Type.SCALE_START, x, y, step, null);
+        } else if (event.getEventType() == ZoomEvent.ZOOM) {
+            queueScale(TouchEvent.Type.SCALE_MOVE, x, y, step, ZOOM_POINTER);
+        } else if (event.getEventType() == ZoomEvent.ZOOM_FINISHED) {
+            queueScale(TouchEvent.Type.SCALE_END, x, y, step, null);
+        }
+        event.consume();
+    }
+
+    private void handleRotate(RotateEvent event) {
+        if (event.getEventType() == RotateEvent.ROTATE) {
+            synchronized (lock) {
+                received++;
+                pendingRotation += (float) event.getAngle();
+            }
+        }
+        event.consume();
+    }
+
+    private void handleSwipe(SwipeEvent event) {
+        float dx = 0, dy = 0;
+        if (event.getEventType() == SwipeEvent.SWIPE_LEFT) dx = -1;
+        else if (event.getEventType() == SwipeEvent.SWIPE_RIGHT) dx = 1;
+        else if (event.getEventType() == SwipeEvent.SWIPE_UP) dy = 1;
+        else if (event.getEventType() == SwipeEvent.SWIPE_DOWN) dy = -1;
+        queue(TouchEvent.Type.FLING, 0, (float) event.getX(), currentHeight - (float) event.getY(), dx, dy, null);
+        event.consume();
+    }
+
+    void queueScale(TouchEvent.Type type, float x, float y, float zoomFactor, Integer mergeKey) {
+        synchronized (lock) {
+            int merged = coalesced;
+            TouchEvent event = enqueue(type, 0, x, y, 0, 0, mergeKey);
+            if (event == null) return;
+            // steps merged within a frame multiply into one step.
+            event.setScaleFactor(coalesced != merged ? event.getScaleFactor() * zoomFactor : zoomFactor);
+        }
+    }
+
+    void queue(TouchEvent.Type type, int pointer, float x, float y, float dx, float dy, Integer mergeKey) {
+        synchronized (lock) {
+            enqueue(type, pointer, x, y, dx, dy, mergeKey);
+        }
+    }
+
+    /**
+     * Queue an event, or merge it into a mergeable event of the same kind still waiting. Must hold the lock.
+     * @param mergeKey identifies what the event may merge with, or null if it must be delivered on its own.
+     * @return the queued or merged into event, or null if it was dropped.
+     */
+    private TouchEvent enqueue(TouchEvent.Type type, int pointer, float x, float y, float dx, float dy, Integer mergeKey) {
+        received++;
+        long time = getInputTimeNanos();
+        if (mergeKey != null && omitHistoricEvents) {
+            TouchEvent waiting = mergeable.get(mergeKey);
+            if (waiting != null) {
+                int waitingPointer = waiting.getPointerId();
+                float waitingScale = waiting.getScaleFactor();
+                waiting.set(type, x, y, waiting.getDeltaX() + dx, waiting.getDeltaY() + dy); // set() clears these.
+                waiting.setPointerId(waitingPointer);
+                waiting.setScaleFactor(waitingScale);
+                coalesced++;
+                return waiting;
+            }
+        } else if (type == TouchEvent.Type.DOWN || type == TouchEvent.Type.UP) {
+            mergeable.remove(pointer); // moves after a press or release mustn't merge into moves before it.
+        } else if (type == TouchEvent.Type.SCALE_START || type == TouchEvent.Type.SCALE_END) {
+            mergeable.remove(ZOOM_POINTER);
+        }
+
+        if (queue.size() >= QUEUE_CAPACITY) {
+            dropped++;
+            return null;
+        }
+        TouchEvent event = new TouchEvent(type, x, y, dx, dy);
+        event.setPointerId(pointer);
+        event.setTime(time);
+        queue.add(event);
+        if (mergeKey != null) mergeable.put(mergeKey, event);
+        return event;
+    }
+
+    @Override
+    public void update() {
+        ArrayDeque<TouchEvent> events = takeFrame();
+        if (events.isEmpty()) return;
+
+        InputBatchEvent batchEvent = new InputBatchEvent();
+        batchEvent.begin();
+        long now = getInputTimeNanos();
+        long oldest = events.peek().getTime();
+        while (!events.isEmpty()) {
+            TouchEvent event = events.poll();
+            fxContext.getInputLatency().dispatched(event.getTime(), now);
+            listener.onTouchEvent(event);
+        }
+        batchEvent.record("touch", frameDispatched, now - oldest);
+    }
+
+    /**
+     * Start a new frame, publishing the counts of the one just ended.
+     * @return the events queued during the frame, to be dispatched on the render thread.
+     */
+    ArrayDeque<TouchEvent> takeFrame() {
+        ArrayDeque<TouchEvent> events;
+        synchronized (lock) {
+            events = queue;
+            queue = draining;
+            draining = events;
+            mergeable.clear();
+            rotationDelta = pendingRotation;
+            pendingRotation = 0;
+            frameReceived = received;
+            frameCoalesced = coalesced;
+            droppedTotal = dropped;
+            received = 0;
+            coalesced = 0;
+        }
+        // the swapped out deque is only touched by the render thread, the lock above publishes the events in it.
+        frameDispatched = events.size();
+        return events;
+    }
+
+    /**
+     * @return the total rotation of rotate gestures during the last frame, in degrees clockwise.
+     */
+    public float getRotationDelta() {
+        return rotationDelta;
+    }
+
+    /**
+     * @return the number of touch and gesture events JavaFX delivered during the last frame.
+     */
+    public int getFrameReceivedCount() {
+        return frameReceived;
+    }
+
+    /**
+     * @return the number of touch events dispatched to JME in the last update.
+     */
+    public int getFrameDispatchedCount() {
+        return frameDispatched;
+    }
+
+    /**
+     * @return the number of events merged into others during the last frame.
+     */
+    public int getFrameCoalescedCount() {
+        return frameCoalesced;
+    }
+
+    /**
+     * @return the number of events dropped so far because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedTotal;
+    }
+
+    /**
+     * @param simulate true (the default) to let JavaFX's mouse events synthesized from touches through to the mouse
+     *                 input, false to drop them.
+     */
+    @Override
+    public void setSimulateMouse(boolean simulate) {
+        this.simulateMouse = simulate;
+    }
+
+    @Override
+    public boolean isSimulateMouse() {
+        return simulateMouse;
+    }
+
+    @Override
+    public void setSimulateKeyboard(boolean simulate) {
+        this.simulateKeyboard = simulate;
+    }
+
+    @Override
+    public boolean isSimulateKeyboard() {
+        return simulateKeyboard;
+    }
+
+    /**
+     * @param dontSendHistory true to merge moves and zoom steps queued within one frame, the default.
+     */
+    @Override
+    public void setOmitHistoricEvents(boolean dontSendHistory) {
+        this.omitHistoricEvents = dontSendHistory;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return initialised;
+    }
+
+    @Override
+    public void setInputListener(RawInputListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public long getInputTimeNanos() {
+        return System.nanoTime();
+    }
+}
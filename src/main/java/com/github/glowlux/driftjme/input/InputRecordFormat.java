@@ -0,0 +1,66 @@
+package com.github.glowlux.driftjme.input;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The binary format written by {@link InputRecorder} and read by {@link InputReplay}.
+ * <p>
+ * A header of {@link #MAGIC} and {@link #VERSION}, then one record per frame marker or event. Every record starts
+ * with a tag byte and the time since the previous record in nanoseconds, followed by the event's fields. All
+ * numbers are variable length, zig-zag encoded where they can be negative, so a typical mouse move takes 8 bytes.
+ * </p>
+ *
+ * @author glowlux
+ */
+final class InputRecordFormat {
+
+    static final int MAGIC = 0x444A4952; // "DJIR"
+    static final int VERSION = 1;
+
+    static final int FRAME = 0;
+    static final int KEY = 1;
+    static final int MOUSE_MOTION = 2;
+    static final int MOUSE_BUTTON = 3;
+
+    static final int KEY_PRESSED = 1;
+    static final int KEY_REPEATING = 2;
+
+    private InputRecordFormat() {}
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length number.");
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int readSignedVarInt(DataInput in) throws IOException {
+        int value = readVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
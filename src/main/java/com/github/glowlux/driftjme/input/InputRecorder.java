@@ -0,0 +1,178 @@
+package com.github.glowlux.driftjme.input;
+
+import com.jme3.input.RawInputListener;
+import com.jme3.input.event.InputEvent;
+import com.jme3.input.event.JoyAxisEvent;
+import com.jme3.input.event.JoyButtonEvent;
+import com.jme3.input.event.KeyInputEvent;
+import com.jme3.input.event.MouseButtonEvent;
+import com.jme3.input.event.MouseMotionEvent;
+import com.jme3.input.event.TouchEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.glowlux.driftjme.input.InputRecordFormat.*;
+
+/**
+ * Records the keyboard and mouse events the input manager receives, along with frame boundaries, for
+ * {@link InputReplay} to play back.
+ * <p>
+ * Register it as a raw input listener on the render thread, and close it when done:
+ * </p>
+ * <pre>
+ * InputRecorder recorder = new InputRecorder(Paths.get("session.djir"));
+ * inputManager.addRawInputListener(recorder);
+ * ...
+ * inputManager.removeRawInputListener(recorder);
+ * recorder.close();
+ * </pre>
+ * Events are timestamped with their capture time when it comes from the same clock as {@link System#nanoTime()},
+ * as it does for the JavaFX inputs, otherwise with the time they were received. Joystick and touch events are not
+ * recorded.
+ *
+ * @author glowlux
+ */
+public class InputRecorder implements RawInputListener, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(InputRecorder.class.getName());
+
+    private final DataOutputStream out;
+    private final long startNanos;
+    private long lastNanos;
+    private long records;
+    private boolean failed;
+
+    /**
+     * @param file the file to record to, replaced if it exists.
+     * @throws IOException if the file can't be created.
+     */
+    public InputRecorder(Path file) throws IOException {
+        this(Files.newOutputStream(file));
+    }
+
+    /**
+     * @param stream the stream to record to, closed with the recorder.
+     * @throws IOException if the header can't be written.
+     */
+    public InputRecorder(OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        startNanos = lastNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the number of frame markers and events recorded.
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void beginInput() {
+        begin(FRAME, System.nanoTime());
+        end();
+    }
+
+    @Override
+    public void endInput() {}
+
+    @Override
+    public void onKeyEvent(KeyInputEvent evt) {
+        if (!begin(KEY, timeOf(evt))) return;
+        try {
+            writeVarInt(out, evt.getKeyCode());
+            writeVarInt(out, evt.getKeyChar());
+            out.writeByte((evt.isPressed() ? KEY_PRESSED : 0) | (evt.isRepeating() ? KEY_REPEATING : 0));
+        } catch (IOException e) {
+            fail(e);
+        }
+        end();
+    }
+
+    @Override
+    public void onMouseMotionEvent(MouseMotionEvent evt) {
+        if (!begin(MOUSE_MOTION, timeOf(evt))) return;
+        try {
+            writeSignedVarInt(out, evt.getX());
+            writeSignedVarInt(out, evt.getY());
+            writeSignedVarInt(out, evt.getDX());
+            writeSignedVarInt(out, evt.getDY());
+            writeSignedVarInt(out, evt.getWheel());
+            writeSignedVarInt(out, evt.getDeltaWheel());
+        } catch (IOException e) {
+            fail(e);
+        }
+        end();
+    }
+
+    @Override
+    public void onMouseButtonEvent(MouseButtonEvent evt) {
+        if (!begin(MOUSE_BUTTON, timeOf(evt))) return;
+        try {
+            writeVarInt(out, evt.getButtonIndex());
+            out.writeByte(evt.isPressed() ? 1 : 0);
+            writeSignedVarInt(out, evt.getX());
+            writeSignedVarInt(out, evt.getY());
+        } catch (IOException e) {
+            fail(e);
+        }
+        end();
+    }
+
+    @Override
+    public void onJoyAxisEvent(JoyAxisEvent evt) {}
+
+    @Override
+    public void onJoyButtonEvent(JoyButtonEvent evt) {}
+
+    @Override
+    public void onTouchEvent(TouchEvent evt) {}
+
+    private long timeOf(InputEvent evt) {
+        long now = System.nanoTime();
+        long time = evt.getTime();
+        // a capture time from another clock (e.g. GLFW's) can't be compared with ours, fall back to receipt time.
+        return time >= startNanos && time <= now ? time : now;
+    }
+
+    /**
+     * Write the tag and time of a record.
+     * @return false if recording has failed and the record should be skipped.
+     */
+    private boolean begin(int tag, long time) {
+        if (failed) return false;
+        try {
+            out.writeByte(tag);
+            writeVarLong(out, Math.max(0, time - lastNanos));
+            lastNanos = Math.max(lastNanos, time);
+            return true;
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    private void end() {
+        if (!failed) records++;
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        LOGGER.log(Level.WARNING, "Input recording failed, stopping.", e);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        LOGGER.fine("Recorded " + records + " input records over " + (lastNanos - startNanos) / 1_000_000 + "ms.");
+    }
+}
@@ -0,0 +1,330 @@
+package com.github.glowlux.driftjme.input;
+
+import com.jme3.cursors.plugins.JmeCursor;
+import com.jme3.input.KeyInput;
+import com.jme3.input.MouseInput;
+import com.jme3.input.RawInputListener;
+import com.jme3.input.event.InputEvent;
+import com.jme3.input.event.KeyInputEvent;
+import com.jme3.input.event.MouseButtonEvent;
+import com.jme3.input.event.MouseMotionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.glowlux.driftjme.input.InputRecordFormat.*;
+
+/**
+ * Plays back a recording made by {@link InputRecorder} through JME's own input path.
+ * <p>
+ * {@link #getKeyInput()} and {@link #getMouseInput()} are input devices that need no JavaFX stage or window; they
+ * hand the recorded events to the input manager's {@link RawInputListener} exactly as the live devices did. Give
+ * them to the application in place of the real devices, with {@link com.github.glowlux.driftjme.FXContext#setInputReplay}
+ * or by overriding a context's {@code getKeyInput()} and {@code getMouseInput()}, before the application starts.
+ * </p>
+ * <p>
+ * In {@link Mode#FRAME_LOCKED} every recorded frame's events are delivered in one rendered frame, as fast as the
+ * application can render, so the same recording always produces the same sequence of updates. Combined with
+ * {@link com.github.glowlux.driftjme.FrameTimings} this makes a repeatable benchmark. {@link Mode#REALTIME} delivers
+ * events at their original times instead, to reproduce a session as the user experienced it.
+ * </p>
+ *
+ * @author glowlux
+ */
+public class InputReplay {
+
+    public enum Mode {
+        /** Deliver events when as much time has passed since the replay started as had during recording. */
+        REALTIME,
+        /** Deliver one recorded frame of events per update, regardless of time. */
+        FRAME_LOCKED
+    }
+
+    private final List<Record> keyRecords;
+    private final List<Record> mouseRecords;
+    private final int frameCount;
+    private final long firstFrameNanos;
+    private final long durationNanos;
+
+    private volatile Mode mode = Mode.FRAME_LOCKED;
+    private long startNanos = -1; // render thread only.
+
+    private final ReplayKeyInput keyInput;
+    private final ReplayMouseInput mouseInput;
+
+    /**
+     * @param file a recording made by {@link InputRecorder}.
+     * @throws IOException if the file can't be read or isn't a recording.
+     */
+    public InputReplay(Path file) throws IOException {
+        this(Files.newInputStream(file));
+    }
+
+    /**
+     * @param stream a recording made by {@link InputRecorder}, read fully and closed.
+     * @throws IOException if the stream can't be read or isn't a recording.
+     */
+    public InputReplay(InputStream stream) throws IOException {
+        List<Record> keys = new ArrayList<>();
+        List<Record> mouse = new ArrayList<>();
+        int frames = 0;
+        long time = 0;
+        long firstFrame = -1;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an input recording.");
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported input recording version " + version + ".");
+
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) break;
+                try {
+                    time += readVarLong(in);
+                    switch (tag) {
+                        case FRAME:
+                            frames++;
+                            if (firstFrame < 0) firstFrame = time;
+                            break;
+                        case KEY:
+                            keys.add(new Record(tag, time, frames, readVarInt(in), readVarInt(in), in.readUnsignedByte()));
+                            break;
+                        case MOUSE_MOTION:
+                            mouse.add(new Record(tag, time, frames, readSignedVarInt(in), readSignedVarInt(in), readSignedVarInt(in),
+                                    readSignedVarInt(in), readSignedVarInt(in), readSignedVarInt(in)));
+                            break;
+                        case MOUSE_BUTTON:
+                            mouse.add(new Record(tag, time, frames, readVarInt(in), in.readUnsignedByte(), readSignedVarInt(in), readSignedVarInt(in)));
+                            break;
+                        default:
+                            throw new IOException("Unknown input record type " + tag + ".");
+                    }
+                } catch (EOFException e) {
+                    break; // a recording cut short, e.g. by a crash, is still good up to its last whole record.
+                }
+            }
+        }
+
+        keyRecords = Collections.unmodifiableList(keys);
+        mouseRecords = Collections.unmodifiableList(mouse);
+        frameCount = frames;
+        firstFrameNanos = Math.max(0, firstFrame);
+        durationNanos = time - firstFrameNanos;
+        // the devices take the records on construction, so only once they're read.
+        keyInput = new ReplayKeyInput();
+        mouseInput = new ReplayMouseInput();
+    }
+
+    /**
+     * @param mode how to pace the replay, {@link Mode#FRAME_LOCKED} by default.
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of frames recorded.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the time from the first recorded frame to the last record, in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the number of keyboard and mouse events recorded.
+     */
+    public int getEventCount() {
+        return keyRecords.size() + mouseRecords.size();
+    }
+
+    /**
+     * @return true once every recorded event has been delivered.
+     */
+    public boolean isFinished() {
+        return keyInput.next >= keyRecords.size() && mouseInput.next >= mouseRecords.size();
+    }
+
+    /**
+     * Play the recording again from the start. Must be called on the render thread.
+     */
+    public void restart() {
+        startNanos = -1;
+        keyInput.reset();
+        mouseInput.reset();
+    }
+
+    /**
+     * @return the keyboard device playing back the recording.
+     */
+    public KeyInput getKeyInput() {
+        return keyInput;
+    }
+
+    /**
+     * @return the mouse device playing back the recording.
+     */
+    public MouseInput getMouseInput() {
+        return mouseInput;
+    }
+
+    private static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * The recording time up to which events are due, in the recording's own clock.
+     */
+    private long dueNanos(long now) {
+        if (startNanos < 0) startNanos = now; // both devices update in the same frame, whichever goes first starts the clock.
+        return firstFrameNanos + now - startNanos;
+    }
+
+    /**
+     * A keyboard or mouse event as recorded.
+     */
+    private static final class Record {
+
+        final int type;
+        final long time;
+        final int frame;
+        final int[] values;
+
+        Record(int type, long time, int frame, int... values) {
+            this.type = type;
+            this.time = time;
+            this.frame = frame;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Shared pacing of one stream of records.
+     */
+    private abstract class ReplayDevice {
+
+        private final List<Record> records;
+        int next;
+        private int frame;
+        protected RawInputListener listener;
+        private boolean initialized;
+
+        ReplayDevice(List<Record> records) {
+            this.records = records;
+        }
+
+        void reset() {
+            next = 0;
+            frame = 0;
+        }
+
+        public void initialize() {
+            initialized = true;
+        }
+
+        public boolean isInitialized() {
+            return initialized;
+        }
+
+        public void destroy() {
+            initialized = false;
+        }
+
+        public void setInputListener(RawInputListener listener) {
+            this.listener = listener;
+        }
+
+        public long getInputTimeNanos() {
+            return now();
+        }
+
+        public void update() {
+            long now = now();
+            frame++;
+            long due = mode == Mode.REALTIME ? dueNanos(now) : 0;
+            while (next < records.size()) {
+                Record record = records.get(next);
+                if (mode == Mode.REALTIME ? record.time > due : record.frame > frame) break;
+                InputEvent event = toEvent(record);
+                event.setTime(now);
+                dispatch(event);
+                next++;
+            }
+        }
+
+        abstract InputEvent toEvent(Record record);
+
+        abstract void dispatch(InputEvent event);
+    }
+
+    private final class ReplayKeyInput extends ReplayDevice implements KeyInput {
+
+        ReplayKeyInput() {
+            super(keyRecords);
+        }
+
+        @Override
+        InputEvent toEvent(Record record) {
+            int[] v = record.values;
+            return new KeyInputEvent(v[0], (char) v[1], (v[2] & KEY_PRESSED) != 0, (v[2] & KEY_REPEATING) != 0);
+        }
+
+        @Override
+        void dispatch(InputEvent event) {
+            listener.onKeyEvent((KeyInputEvent) event);
+        }
+
+        @Override
+        public String getKeyName(int key) {
+            return FXKeyMap.fromJmeKeyCode(key).getName();
+        }
+    }
+
+    private final class ReplayMouseInput extends ReplayDevice implements MouseInput {
+
+        ReplayMouseInput() {
+            super(mouseRecords);
+        }
+
+        @Override
+        InputEvent toEvent(Record record) {
+            int[] v = record.values;
+            if (record.type == MOUSE_MOTION) return new MouseMotionEvent(v[0], v[1], v[2], v[3], v[4], v[5]);
+            return new MouseButtonEvent(v[0], v[1] != 0, v[2], v[3]);
+        }
+
+        @Override
+        void dispatch(InputEvent event) {
+            if (event instanceof MouseMotionEvent) listener.onMouseMotionEvent((MouseMotionEvent) event);
+            else listener.onMouseButtonEvent((MouseButtonEvent) event);
+        }
+
+        @Override
+        public void setCursorVisible(boolean visible) {} // there is no cursor to show.
+
+        @Override
+        public int getButtonCount() {
+            return 3;
+        }
+
+        @Override
+        public void setNativeCursor(JmeCursor cursor) {}
+    }
+}
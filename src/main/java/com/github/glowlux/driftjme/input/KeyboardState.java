@@ -0,0 +1,59 @@
+package com.github.glowlux.driftjme.input;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of which keys are held, as of the most recent input update.
+ * <p>
+ * Published by {@link FXKeyInput#getState()} once per frame, for logic that would rather poll "is W down" than map
+ * every key through the input manager and track presses in listeners. Querying never allocates. A new snapshot is
+ * only made on frames where a key changed, otherwise the previous one is published again.
+ * </p>
+ *
+ * @author glowlux
+ */
+public final class KeyboardState {
+
+    static final int KEY_COUNT = 256; // JME key codes fit in a byte.
+
+    static final KeyboardState EMPTY = new KeyboardState(new long[KEY_COUNT / 64]);
+
+    private final long[] down;
+
+    KeyboardState(long[] down) {
+        this.down = down;
+    }
+
+    /**
+     * @param keyCode a JME key code, one of the {@code KeyInput.KEY_} constants.
+     * @return true if the key is held.
+     */
+    public boolean isDown(int keyCode) {
+        return keyCode >= 0 && keyCode < KEY_COUNT && (down[keyCode >>> 6] & (1L << keyCode)) != 0;
+    }
+
+    /**
+     * @return true if any key is held.
+     */
+    public boolean isAnyDown() {
+        for (long bits : down) {
+            if (bits != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of keys held.
+     */
+    public int getDownCount() {
+        int count = 0;
+        for (long bits : down) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    boolean matches(long[] other) {
+        return Arrays.equals(down, other);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.glowlux.driftjme.input;
+
+import com.jme3.input.MouseInput;
+
+/**
+ * An immutable snapshot of the mouse, as of the most recent input update.
+ * <p>
+ * Published by {@link FXMouseInput#getState()} once per frame: the buttons held, where the cursor is, and the
+ * motion and wheel movement dispatched during that frame's update, summed. Querying never allocates. A new
+ * snapshot is only made on frames where something changed, otherwise the previous one is published again.
+ * </p>
+ *
+ * @author glowlux
+ */
+public final class MouseState {
+
+    static final MouseState EMPTY = new MouseState(0, 0, 0, 0, 0, 0);
+
+    private final int buttons;
+    private final int x;
+    private final int y;
+    private final int deltaX;
+    private final int deltaY;
+    private final int deltaWheel;
+
+    MouseState(int buttons, int x, int y, int deltaX, int deltaY, int deltaWheel) {
+        this.buttons = buttons;
+        this.x = x;
+        this.y = y;
+        this.deltaX = deltaX;
+        this.deltaY = deltaY;
+        this.deltaWheel = deltaWheel;
+    }
+
+    /**
+     * @param button a JME button index, e.g. {@link MouseInput#BUTTON_LEFT}.
+     * @return true if the button is held.
+     */
+    public boolean isDown(int button) {
+        return button >= 0 && button < 32 && (buttons & (1 << button)) != 0;
+    }
+
+    /**
+     * @return the held buttons, bit n set for JME button index n.
+     */
+    public int getButtonMask() {
+        return buttons;
+    }
+
+    /**
+     * @return the cursor x position in pixels from the left.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return the cursor y position in pixels from the bottom.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return the total x motion this frame in pixels.
+     */
+    public int getDeltaX() {
+        return deltaX;
+    }
+
+    /**
+     * @return the total y motion this frame in pixels, positive upwards.
+     */
+    public int getDeltaY() {
+        return deltaY;
+    }
+
+    /**
+     * @return the total wheel movement this frame.
+     */
+    public int getDeltaWheel() {
+        return deltaWheel;
+    }
+
+    boolean matches(int buttons, int x, int y, int deltaX, int deltaY, int deltaWheel) {
+        return this.buttons == buttons && this.x == x && this.y == y
+                && this.deltaX == deltaX && this.deltaY == deltaY && this.deltaWheel == deltaWheel;
+    }
+}
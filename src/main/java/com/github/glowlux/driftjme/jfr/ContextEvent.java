@@ -0,0 +1,44 @@
+package com.github.glowlux.driftjme.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An {@code FXContext} being created or destroyed, spanning the initialisation or tear down.
+ *
+ * @author glowlux
+ */
+@Name("com.github.glowlux.driftjme.Context")
+@Label("Context")
+@Category({"jMonkeyEngine", "DriftFX"})
+@Description("An FXContext created or destroyed")
+public final class ContextEvent extends Event {
+
+    public static final String CREATE = "create";
+    public static final String DESTROY = "destroy";
+
+    @Label("Action")
+    String action;
+
+    @Label("Transfer Type")
+    String transferType;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * End the event and commit it if recording.
+     */
+    public void record(String action, Object transferType, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.action = action;
+            this.transferType = String.valueOf(transferType);
+            this.success = success;
+            commit();
+        }
+    }
+}
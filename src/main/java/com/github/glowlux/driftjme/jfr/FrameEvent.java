@@ -0,0 +1,55 @@
+package com.github.glowlux.driftjme.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A frame rendered by an {@code FXContext}, from acquiring the swapchain image to presenting it.
+ * Create one at the start of the frame with {@link #begin()} and finish it with {@link #record}.
+ *
+ * @author glowlux
+ */
+@Name("com.github.glowlux.driftjme.Frame")
+@Label("Frame")
+@Category({"jMonkeyEngine", "DriftFX"})
+@Description("A frame rendered into a DriftFX surface")
+@StackTrace(false)
+public final class FrameEvent extends Event {
+
+    @Label("Frame Number")
+    long frameNumber;
+
+    @Label("Acquire")
+    @Description("Time spent waiting to acquire a swapchain image")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquire;
+
+    @Label("Update")
+    @Description("Time spent in the application update, including issuing render commands")
+    @Timespan(Timespan.NANOSECONDS)
+    long update;
+
+    @Label("Present")
+    @Description("Time spent presenting the swapchain image")
+    @Timespan(Timespan.NANOSECONDS)
+    long present;
+
+    /**
+     * End the event and commit it if recording.
+     */
+    public void record(long frameNumber, long acquireNanos, long updateNanos, long presentNanos) {
+        end();
+        if (shouldCommit()) {
+            this.frameNumber = frameNumber;
+            this.acquire = acquireNanos;
+            this.update = updateNanos;
+            this.present = presentNanos;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.glowlux.driftjme.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A batch of queued JavaFX input events drained into JME, spanning the dispatch to the input listeners.
+ *
+ * @author glowlux
+ */
+@Name("com.github.glowlux.driftjme.InputBatch")
+@Label("Input Batch")
+@Category({"jMonkeyEngine", "DriftFX", "Input"})
+@Description("Queued JavaFX input events dispatched to JME")
+@StackTrace(false)
+public final class InputBatchEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Event Count")
+    int eventCount;
+
+    @Label("Queue Age")
+    @Description("Time the oldest event in the batch spent queued before dispatch")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueAge;
+
+    /**
+     * End the event and commit it if recording.
+     */
+    public void record(String device, int eventCount, long queueAgeNanos) {
+        end();
+        if (shouldCommit()) {
+            this.device = device;
+            this.eventCount = eventCount;
+            this.queueAge = queueAgeNanos;
+            commit();
+        }
+    }
+}
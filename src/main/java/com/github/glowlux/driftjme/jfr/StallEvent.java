@@ -0,0 +1,42 @@
+package com.github.glowlux.driftjme.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The render loop stuck in one phase of a frame for longer than the watchdog threshold.
+ *
+ * @author glowlux
+ */
+@Name("com.github.glowlux.driftjme.Stall")
+@Label("Render Stall")
+@Category({"jMonkeyEngine", "DriftFX"})
+@Description("The render loop made no progress for longer than the watchdog threshold")
+public final class StallEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Stalled For")
+    @Timespan(Timespan.NANOSECONDS)
+    long stalledNanos;
+
+    @Label("Fallback Requested")
+    boolean fallback;
+
+    /**
+     * Commit the event if recording.
+     */
+    public void record(String phase, long stalledNanos, boolean fallback) {
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.stalledNanos = stalledNanos;
+            this.fallback = fallback;
+            commit();
+        }
+    }
+}
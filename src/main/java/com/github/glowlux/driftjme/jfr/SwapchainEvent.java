@@ -0,0 +1,56 @@
+package com.github.glowlux.driftjme.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A DriftFX swapchain being created or disposed, spanning the call that did it.
+ *
+ * @author glowlux
+ */
+@Name("com.github.glowlux.driftjme.Swapchain")
+@Label("Swapchain")
+@Category({"jMonkeyEngine", "DriftFX"})
+@Description("A DriftFX swapchain created or disposed")
+public final class SwapchainEvent extends Event {
+
+    public static final String CREATE = "create";
+    public static final String DISPOSE = "dispose";
+
+    @Label("Action")
+    String action;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Image Count")
+    int imageCount;
+
+    @Label("Presentation Mode")
+    String presentationMode;
+
+    @Label("Transfer Type")
+    String transferType;
+
+    /**
+     * End the event and commit it if recording.
+     */
+    public void record(String action, int width, int height, int imageCount, Object presentationMode, Object transferType) {
+        end();
+        if (shouldCommit()) {
+            this.action = action;
+            this.width = width;
+            this.height = height;
+            this.imageCount = imageCount;
+            this.presentationMode = String.valueOf(presentationMode);
+            this.transferType = String.valueOf(transferType);
+            commit();
+        }
+    }
+}
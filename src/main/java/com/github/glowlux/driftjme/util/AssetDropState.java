@@ -0,0 +1,398 @@
+package com.github.glowlux.driftjme.util;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.ModelKey;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.EventHandler;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
+import org.eclipse.fx.drift.DriftFXSurface;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports models dropped onto a {@link DriftFXSurface}, either files from the OS or asset paths dragged as text
+ * from elsewhere in the JavaFX application, without stalling rendering.
+ * <p>
+ * Loading runs on a background pool: parsing, building mesh buffers, decoding textures and computing bounds. The
+ * render thread only uploads the result, one geometry at a time within a per-frame time budget, and attaches the
+ * model once everything is on the GPU. Every import is listed in {@link #getJobs()} with observable progress for
+ * JavaFX to show.
+ * </p>
+ * <p>
+ * A dropped file is loaded through a locator at its file system root, by its full path, so textures and buffers it
+ * refers to by relative path resolve wherever they are. The locator is only registered while files from that root
+ * are loading.
+ * </p>
+ *
+ * @author glowlux
+ */
+public class AssetDropState extends AbstractAppState {
+
+    private static final Logger LOGGER = Logger.getLogger(AssetDropState.class.getName());
+
+    public static final Set<String> DEFAULT_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("j3o", "gltf", "glb", "obj")));
+
+    private final DriftFXSurface surface;
+    private final Set<String> extensions;
+    private final int loaderThreads;
+    private volatile ExecutorService pool;
+    private Node target;
+
+    private volatile long uploadBudgetNanos = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final ObservableList<ImportJob> jobs = FXCollections.observableArrayList(); // JavaFX thread only.
+    private final Queue<ImportJob> loaded = new ConcurrentLinkedQueue<>();
+    private final Map<Path, Integer> rootLoads = new HashMap<>(); // loads in progress per registered root, guarded by itself.
+
+    private volatile AssetManager assetManager;
+
+    // render thread only.
+    private RenderManager renderManager;
+    private ImportJob uploading;
+    private int uploadIndex;
+
+    private final EventHandler<DragEvent> dragOver = this::onDragOver;
+    private final EventHandler<DragEvent> dragDropped = this::onDragDropped;
+
+    /**
+     * @param surface the surface to accept drops on.
+     */
+    public AssetDropState(DriftFXSurface surface) {
+        this(surface, null, DEFAULT_EXTENSIONS, 2);
+    }
+
+    /**
+     * @param surface the surface to accept drops on.
+     * @param target the node imported models are attached to, or null for the root node of a SimpleApplication.
+     * @param extensions the file extensions accepted, lower case and without the dot.
+     * @param loaderThreads how many models may load at once.
+     */
+    public AssetDropState(DriftFXSurface surface, Node target, Set<String> extensions, int loaderThreads) {
+        this.surface = surface;
+        this.target = target;
+        this.extensions = new HashSet<>(extensions);
+        this.loaderThreads = Math.max(1, loaderThreads);
+    }
+
+    /**
+     * Set how long the render thread may spend uploading imported models each frame. At least one geometry is
+     * uploaded per frame however long it takes.
+     * @param uploadBudgetNanos the budget in nanoseconds, 2ms by default.
+     */
+    public void setUploadBudgetNanos(long uploadBudgetNanos) {
+        this.uploadBudgetNanos = Math.max(0, uploadBudgetNanos);
+    }
+
+    public long getUploadBudgetNanos() {
+        return uploadBudgetNanos;
+    }
+
+    /**
+     * @return every import started, in the order they were dropped. Must only be used on the JavaFX thread.
+     */
+    public ObservableList<ImportJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Import a model as if it had been dropped. Must be called on the JavaFX thread.
+     * @param file the model file.
+     * @return the job tracking the import.
+     */
+    public ImportJob importFile(File file) {
+        Path path = file.toPath().toAbsolutePath();
+        return start(new ImportJob(path.toString(), path));
+    }
+
+    /**
+     * Import a model already reachable through the asset manager. Must be called on the JavaFX thread.
+     * @param assetPath the asset path, e.g. "Models/Tree.j3o".
+     * @return the job tracking the import.
+     */
+    public ImportJob importAsset(String assetPath) {
+        return start(new ImportJob(assetPath, null));
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        renderManager = app.getRenderManager();
+        if (target == null) {
+            if (!(app instanceof SimpleApplication)) throw new IllegalStateException("No target node given and the application has no root node.");
+            target = ((SimpleApplication) app).getRootNode();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(loaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "Asset import " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        assetManager = app.getAssetManager();
+
+        Platform.runLater(() -> {
+            surface.addEventHandler(DragEvent.DRAG_OVER, dragOver);
+            surface.addEventHandler(DragEvent.DRAG_DROPPED, dragDropped);
+        });
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        ExecutorService stopped = pool;
+        pool = null;
+        stopped.shutdownNow();
+        loaded.clear();
+        uploading = null;
+        // nothing will upload what is still outstanding, so fail it rather than leave it looking stuck.
+        Platform.runLater(() -> {
+            surface.removeEventHandler(DragEvent.DRAG_OVER, dragOver);
+            surface.removeEventHandler(DragEvent.DRAG_DROPPED, dragDropped);
+            for (ImportJob job : jobs) {
+                if (job.pool == stopped && !job.isFinished()) {
+                    if (job.error == null) job.error = new IllegalStateException("AssetDropState was detached before the import finished.");
+                    job.state.set(ImportJob.State.FAILED);
+                    job.progress.set(1.0);
+                }
+            }
+        });
+    }
+
+    private boolean isImportable(File file) {
+        return file.isFile() && isImportable(file.getName());
+    }
+
+    private boolean isImportable(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private void onDragOver(DragEvent event) {
+        Dragboard dragboard = event.getDragboard();
+        boolean importable = dragboard.hasFiles() ? dragboard.getFiles().stream().anyMatch(this::isImportable) : dragboard.hasString() && isImportable(dragboard.getString().trim());
+        if (event.getGestureSource() != surface && importable) {
+            event.acceptTransferModes(TransferMode.COPY);
+            event.consume();
+        }
+    }
+
+    private void onDragDropped(DragEvent event) {
+        Dragboard dragboard = event.getDragboard();
+        boolean accepted = false;
+        if (dragboard.hasFiles()) {
+            for (File file : dragboard.getFiles()) {
+                if (isImportable(file)) {
+                    importFile(file);
+                    accepted = true;
+                }
+            }
+        } else if (dragboard.hasString() && isImportable(dragboard.getString().trim())) {
+            importAsset(dragboard.getString().trim());
+            accepted = true;
+        }
+        event.setDropCompleted(accepted);
+        event.consume();
+    }
+
+    private ImportJob start(ImportJob job) {
+        ExecutorService pool = this.pool;
+        if (assetManager == null || pool == null) throw new IllegalStateException("AssetDropState must be attached before importing.");
+        job.pool = pool;
+        jobs.add(job);
+        pool.execute(() -> load(job));
+        return job;
+    }
+
+    /**
+     * Load and prepare a model on the pool, everything short of touching GL.
+     */
+    private void load(ImportJob job) {
+        try {
+            Spatial spatial = job.file != null ? loadFile(job.file) : assetManager.loadModel(new ModelKey(job.source));
+            spatial.updateModelBound();
+            spatial.updateGeometricState();
+
+            List<Geometry> geometries = new ArrayList<>();
+            spatial.depthFirstTraversal(child -> {
+                if (child instanceof Geometry) geometries.add((Geometry) child);
+            });
+            job.spatial = spatial;
+            job.geometries = geometries;
+            job.post(ImportJob.State.UPLOADING, 0.5);
+            loaded.add(job);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to import " + job.source, e);
+            job.error = e;
+            job.post(ImportJob.State.FAILED, 1.0);
+        }
+    }
+
+    /**
+     * Load a dropped file through a locator at its file system root, see the class documentation.
+     */
+    private Spatial loadFile(Path file) {
+        // the full path keeps relative paths (textures, .bin buffers) next to or above the model working.
+        Path root = file.getRoot();
+        synchronized (rootLoads) {
+            if (rootLoads.merge(root, 1, Integer::sum) == 1) assetManager.registerLocator(root.toString(), FileLocator.class);
+        }
+        try {
+            return assetManager.loadModel(new ModelKey(root.relativize(file).toString().replace(File.separatorChar, '/')));
+        } finally {
+            synchronized (rootLoads) {
+                if (rootLoads.merge(root, -1, Integer::sum) == 0) {
+                    rootLoads.remove(root);
+                    assetManager.unregisterLocator(root.toString(), FileLocator.class);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        long deadline = System.nanoTime() + uploadBudgetNanos;
+        do {
+            if (uploading == null) {
+                uploading = loaded.poll();
+                uploadIndex = 0;
+                if (uploading == null) return;
+                if (uploading.pool != pool) { // loaded after a previous cleanup, which already failed it.
+                    uploading = null;
+                    continue;
+                }
+            }
+
+            List<Geometry> geometries = uploading.geometries;
+            if (uploadIndex < geometries.size()) {
+                renderManager.preloadScene(geometries.get(uploadIndex++)); // buffers, textures and shaders of one geometry.
+            }
+            if (uploadIndex >= geometries.size()) {
+                target.attachChild(uploading.spatial);
+                uploading.post(ImportJob.State.DONE, 1.0);
+                uploading = null;
+            }
+        } while (System.nanoTime() < deadline);
+
+        if (uploading != null) {
+            uploading.post(ImportJob.State.UPLOADING, 0.5 + 0.5 * uploadIndex / uploading.geometries.size());
+        }
+    }
+
+    /**
+     * A single import, observable from JavaFX.
+     */
+    public static final class ImportJob {
+
+        public enum State {
+            LOADING, UPLOADING, DONE, FAILED
+        }
+
+        private final String source;
+        private final Path file;
+
+        private volatile ExecutorService pool;
+        private volatile Spatial spatial;
+        private volatile List<Geometry> geometries;
+        private volatile Throwable error;
+
+        private final ReadOnlyObjectWrapper<State> state = new ReadOnlyObjectWrapper<>(this, "state", State.LOADING);
+        private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress", 0);
+
+        private ImportJob(String source, Path file) {
+            this.source = source;
+            this.file = file;
+        }
+
+        private void post(State state, double progress) {
+            Platform.runLater(() -> {
+                if (isFinished()) return;
+                this.state.set(state);
+                this.progress.set(progress);
+            });
+        }
+
+        /**
+         * @return the file or asset path being imported.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the imported model once loaded, attached to the scene when the state is {@link State#DONE}.
+         */
+        public Spatial getSpatial() {
+            return spatial;
+        }
+
+        /**
+         * @return why the import failed, or null.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public ReadOnlyObjectProperty<State> stateProperty() {
+            return state.getReadOnlyProperty();
+        }
+
+        public State getState() {
+            return state.get();
+        }
+
+        private boolean isFinished() {
+            return state.get() == State.DONE || state.get() == State.FAILED;
+        }
+
+        /**
+         * @return progress from 0 to 1. Loading is the first half, uploading the second.
+         */
+        public ReadOnlyDoubleProperty progressProperty() {
+            return progress.getReadOnlyProperty();
+        }
+
+        public double getProgress() {
+            return progress.get();
+        }
+
+        @Override
+        public String toString() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.github.glowlux.driftjme.util;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.input.InputManager;
+import com.jme3.input.RawInputListener;
+import com.jme3.input.event.JoyAxisEvent;
+import com.jme3.input.event.JoyButtonEvent;
+import com.jme3.input.event.KeyInputEvent;
+import com.jme3.input.event.MouseButtonEvent;
+import com.jme3.input.event.MouseMotionEvent;
+import com.jme3.input.event.TouchEvent;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Renderer;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_BGRA;
+import static org.lwjgl.opengl.GL12.GL_UNSIGNED_INT_8_8_8_8_REV;
+
+/**
+ * Shows a live JavaFX node, a chart, a form or anything else, as a texture inside the 3D scene.
+ * <p>
+ * The node is laid out in an offscreen scene and snapshotted on the JavaFX thread at a configurable rate. Each
+ * snapshot is compared with the previous one in tiles, and only the tiles that changed are handed to the render
+ * thread, which copies them into a reused direct buffer and uploads them into the texture with
+ * {@code glTexSubImage2D}. A node that isn't changing costs a snapshot and a compare, but no upload.
+ * </p>
+ * <p>
+ * Given the geometry the texture is shown on, mouse motion and button presses that hit it are turned into texture
+ * coordinates and fired at the node as JavaFX mouse events, so controls can be clicked and dragged in 3D. Button
+ * events that hit the geometry are consumed and don't reach JME's input mappings. Hover effects driven by the
+ * scene's own mouse tracking, such as the {@code :hover} pseudo class, are not reproduced.
+ * </p>
+ *
+ * <pre>
+ * FXNodeTexture panel = new FXNodeTexture(chart, 512, 512);
+ * stateManager.attach(panel);
+ * material.setTexture("ColorMap", panel.getTexture());
+ * panel.setInputTarget(quad);
+ * </pre>
+ *
+ * @author glowlux
+ */
+public class FXNodeTexture extends AbstractAppState {
+
+    private static final Logger LOGGER = Logger.getLogger(FXNodeTexture.class.getName());
+
+    private static final int TILE_SIZE = 32;
+
+    private final Parent root;
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+    private final Texture2D texture;
+
+    private volatile float updateRate = 30f;
+    private volatile Geometry inputTarget;
+    private volatile long uploadedBytes;
+
+    // JavaFX thread only.
+    private Scene scene;
+    private WritableImage snapshot;
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private int[] current;
+    private int[] previous;
+    private long lastSnapshot;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (now - lastSnapshot >= TimeUnit.SECONDS.toNanos(1) / updateRate) {
+                lastSnapshot = now;
+                capture();
+            }
+        }
+    };
+    private Node pressedTarget;
+
+    // latest pixels of every tile that changed since the render thread last uploaded, guarded by stageLock.
+    private final Object stageLock = new Object();
+    private int[] staged;
+    private final boolean[] dirtyTiles;
+    private boolean anyDirty;
+
+    // render thread only.
+    private Renderer renderer;
+    private InputManager inputManager;
+    private Camera camera;
+    private ByteBuffer uploadBuffer;
+    private IntBuffer uploadInts;
+    private final Vector2f lastHit = new Vector2f(-1, -1);
+    private int buttonsDown;
+    private final RawInputListener mouseForwarder = new MouseForwarder();
+
+    /**
+     * @param root the node to show, which must not already be part of a scene.
+     * @param width the width of the texture, and of the node, in pixels.
+     * @param height the height of the texture, and of the node, in pixels.
+     */
+    public FXNodeTexture(Parent root, int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("size must be positive");
+        this.root = root;
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.dirtyTiles = new boolean[tilesX * tilesY];
+
+        Image image = new Image(Image.Format.RGBA8, width, height, BufferUtils.createByteBuffer(width * height * 4), ColorSpace.sRGB);
+        texture = new Texture2D(image);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps); // mipmaps would have to be rebuilt on every upload.
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+    }
+
+    /**
+     * @return the texture showing the node, usable straight away. It is transparent until the first snapshot.
+     */
+    public Texture2D getTexture() {
+        return texture;
+    }
+
+    /**
+     * Set how often the node is snapshotted and checked for changes.
+     * @param updateRate the rate in Hz, 30 by default.
+     */
+    public void setUpdateRate(float updateRate) {
+        if (updateRate <= 0) throw new IllegalArgumentException("update rate must be positive");
+        this.updateRate = updateRate;
+    }
+
+    public float getUpdateRate() {
+        return updateRate;
+    }
+
+    /**
+     * Set the geometry the texture is shown on, to forward mouse input that hits it to the node. The geometry's
+     * texture coordinates are assumed to map the whole texture, with (0, 0) at the bottom left.
+     * @param inputTarget the geometry, or null to forward nothing.
+     */
+    public void setInputTarget(Geometry inputTarget) {
+        this.inputTarget = inputTarget;
+    }
+
+    public Geometry getInputTarget() {
+        return inputTarget;
+    }
+
+    /**
+     * @return the total number of bytes uploaded to the texture so far.
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        renderer = app.getRenderer();
+        inputManager = app.getInputManager();
+        if (camera == null) camera = app.getCamera();
+
+        try {
+            renderer.setTexture(0, texture); // allocates the texture, later uploads only replace parts of it.
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create the node texture.", e);
+        }
+        uploadBuffer = BufferUtils.createByteBuffer(width * TILE_SIZE * 4); // one row of tiles.
+        uploadInts = uploadBuffer.asIntBuffer();
+        synchronized (stageLock) {
+            staged = new int[width * height];
+        }
+        inputManager.addRawInputListener(mouseForwarder);
+
+        Platform.runLater(() -> {
+            if (scene == null) scene = new Scene(root, width, height, Color.TRANSPARENT);
+            else scene.setRoot(root);
+            snapshotParameters.setFill(Color.TRANSPARENT);
+            snapshot = new WritableImage(width, height);
+            current = new int[width * height];
+            previous = new int[width * height]; // transparent like the freshly allocated texture.
+            timer.start();
+        });
+    }
+
+    /**
+     * Set the camera mouse input is picked through.
+     * @param camera the camera, the application's by default.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        inputManager.removeRawInputListener(mouseForwarder);
+        lastHit.set(-1, -1);
+        buttonsDown = 0;
+
+        renderer.deleteImage(texture.getImage());
+        uploadBuffer = null;
+        uploadInts = null;
+        synchronized (stageLock) {
+            staged = null;
+            anyDirty = false;
+            Arrays.fill(dirtyTiles, false);
+        }
+
+        Platform.runLater(() -> {
+            timer.stop();
+            // release the root so it can be shown again, here on re-attach or anywhere else.
+            scene.setRoot(new Group());
+            snapshot = null;
+            current = null;
+            previous = null;
+            pressedTarget = null;
+        });
+    }
+
+    /**
+     * Snapshot the node and stage the tiles that changed. Runs on the JavaFX thread.
+     */
+    private void capture() {
+        try {
+            root.snapshot(snapshotParameters, snapshot); // lays out and applies CSS, the scene has no window to do it.
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to snapshot node.", e);
+            return;
+        }
+        // non-premultiplied, so the texture blends like any other.
+        snapshot.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), current, 0, width);
+
+        synchronized (stageLock) {
+            if (staged == null) return; // cleaned up since this capture was scheduled.
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    if (tileChanged(tx, ty)) {
+                        copyTile(tx, ty, current, staged);
+                        dirtyTiles[ty * tilesX + tx] = true;
+                        anyDirty = true;
+                    }
+                }
+            }
+        }
+
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+    }
+
+    private boolean tileChanged(int tx, int ty) {
+        int x0 = tx * TILE_SIZE, x1 = Math.min(x0 + TILE_SIZE, width);
+        int y0 = ty * TILE_SIZE, y1 = Math.min(y0 + TILE_SIZE, height);
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            for (int x = x0; x < x1; x++) {
+                if (current[row + x] != previous[row + x]) return true;
+            }
+        }
+        return false;
+    }
+
+    private void copyTile(int tx, int ty, int[] from, int[] to) {
+        int x0 = tx * TILE_SIZE, tileWidth = Math.min(TILE_SIZE, width - x0);
+        int y0 = ty * TILE_SIZE, y1 = Math.min(y0 + TILE_SIZE, height);
+        for (int y = y0; y < y1; y++) {
+            System.arraycopy(from, y * width + x0, to, y * width + x0, tileWidth);
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        synchronized (stageLock) {
+            if (!anyDirty) return;
+            anyDirty = false;
+
+            try {
+                renderer.setTexture(0, texture); // bind through JME so its state cache stays right.
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to bind the node texture.", e);
+                return;
+            }
+            for (int ty = 0; ty < tilesY; ty++) {
+                // upload each run of dirty tiles in a row of tiles as one rectangle.
+                int tx = 0;
+                while (tx < tilesX) {
+                    if (!dirtyTiles[ty * tilesX + tx]) {
+                        tx++;
+                        continue;
+                    }
+                    int start = tx;
+                    while (tx < tilesX && dirtyTiles[ty * tilesX + tx]) {
+                        dirtyTiles[ty * tilesX + tx++] = false;
+                    }
+                    upload(start * TILE_SIZE, ty * TILE_SIZE, Math.min(tx * TILE_SIZE, width) - start * TILE_SIZE, Math.min(TILE_SIZE, height - ty * TILE_SIZE));
+                }
+            }
+        }
+    }
+
+    /**
+     * Upload a rectangle of staged pixels, given top down as JavaFX has them, into the bottom up texture.
+     */
+    private void upload(int x, int y, int w, int h) {
+        uploadInts.clear();
+        for (int row = y + h - 1; row >= y; row--) {
+            uploadInts.put(staged, row * width + x, w);
+        }
+        uploadBuffer.clear().limit(w * h * 4);
+        // ARGB ints in native order are BGRA with the reversed packed type, whatever the byte order.
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, height - y - h, w, h, GL_BGRA, GL_UNSIGNED_INT_8_8_8_8_REV, uploadBuffer);
+        uploadedBytes += w * h * 4L;
+    }
+
+    /**
+     * Work out the texture coordinate at a collision with a geometry, from the texture coordinates of the triangle
+     * that was hit.
+     * @param result a collision with a geometry that has texture coordinates.
+     * @return the texture coordinate, or null if the geometry has none.
+     */
+    public static Vector2f getTextureCoordinate(CollisionResult result) {
+        Geometry geometry = result.getGeometry();
+        Mesh mesh = geometry.getMesh();
+        VertexBuffer texCoords = mesh.getBuffer(VertexBuffer.Type.TexCoord);
+        if (texCoords == null || result.getTriangleIndex() < 0) return null;
+
+        int[] indices = new int[3];
+        mesh.getTriangle(result.getTriangleIndex(), indices);
+        Vector3f a = new Vector3f(), b = new Vector3f(), c = new Vector3f();
+        mesh.getTriangle(result.getTriangleIndex(), a, b, c);
+        Vector3f point = geometry.worldToLocal(result.getContactPoint(), null);
+
+        // barycentric coordinates of the contact point in the triangle.
+        Vector3f ab = b.subtract(a), ac = c.subtract(a), ap = point.subtract(a);
+        float d00 = ab.dot(ab), d01 = ab.dot(ac), d11 = ac.dot(ac), d20 = ap.dot(ab), d21 = ap.dot(ac);
+        float denominator = d00 * d11 - d01 * d01;
+        if (denominator == 0) return null;
+        float v = (d11 * d20 - d01 * d21) / denominator;
+        float w = (d00 * d21 - d01 * d20) / denominator;
+        float u = 1f - v - w;
+
+        FloatBuffer uvs = (FloatBuffer) texCoords.getData();
+        return new Vector2f(
+                u * uvs.get(indices[0] * 2) + v * uvs.get(indices[1] * 2) + w * uvs.get(indices[2] * 2),
+                u * uvs.get(indices[0] * 2 + 1) + v * uvs.get(indices[1] * 2 + 1) + w * uvs.get(indices[2] * 2 + 1));
+    }
+
+    /**
+     * Pick the input target under a screen position.
+     * @return the hit in node pixel coordinates, top left origin, or null if it was missed.
+     */
+    private Vector2f pick(float screenX, float screenY) {
+        Geometry target = inputTarget;
+        if (target == null || camera == null) return null;
+
+        Vector2f screen = new Vector2f(screenX, screenY);
+        Vector3f origin = camera.getWorldCoordinates(screen, 0f);
+        Vector3f direction = camera.getWorldCoordinates(screen, 1f).subtractLocal(origin).normalizeLocal();
+        CollisionResults results = new CollisionResults();
+        target.collideWith(new Ray(origin, direction), results);
+        if (results.size() == 0) return null;
+
+        Vector2f uv = getTextureCoordinate(results.getClosestCollision());
+        if (uv == null) return null;
+        return new Vector2f(uv.x * width, (1f - uv.y) * height);
+    }
+
+    /**
+     * Fire a mouse event at the deepest node under a point. Runs on the JavaFX thread.
+     */
+    private void fire(EventType<MouseEvent> type, double x, double y, MouseButton button, int buttons) {
+        if (scene == null) return;
+        Node target = type == MouseEvent.MOUSE_DRAGGED || type == MouseEvent.MOUSE_RELEASED ? pressedTarget : null;
+        if (target == null) target = pickNode(root, x, y);
+        if (type == MouseEvent.MOUSE_PRESSED) pressedTarget = target;
+
+        boolean primary = (buttons & 1) != 0, secondary = (buttons & 2) != 0, middle = (buttons & 4) != 0;
+        // x and y are scene coordinates, the event converts them to each node's local coordinates as it is dispatched.
+        Event.fireEvent(target, new MouseEvent(type, x, y, x, y, button, 1,
+                false, false, false, false, primary, middle, secondary, true, false, true, null));
+
+        if (type == MouseEvent.MOUSE_RELEASED) {
+            if (target == pickNode(root, x, y)) {
+                Event.fireEvent(target, new MouseEvent(MouseEvent.MOUSE_CLICKED, x, y, x, y, button, 1,
+                        false, false, false, false, primary, middle, secondary, true, false, true, null));
+            }
+            pressedTarget = null;
+        }
+    }
+
+    private static Node pickNode(Node node, double sceneX, double sceneY) {
+        if (!node.isVisible() || node.isMouseTransparent() || node.isDisabled()) return null;
+        if (node instanceof Parent) {
+            List<Node> children = ((Parent) node).getChildrenUnmodifiable();
+            for (int i = children.size() - 1; i >= 0; i--) { // topmost first.
+                Node picked = pickNode(children.get(i), sceneX, sceneY);
+                if (picked != null) return picked;
+            }
+        }
+        Point2D local = node.sceneToLocal(sceneX, sceneY);
+        if (local != null && node.contains(local)) return node;
+        return node.getParent() == null ? node : null; // the root takes anything its children don't.
+    }
+
+    private static MouseButton toFXButton(int buttonIndex) {
+        switch (buttonIndex) {
+            case 0: return MouseButton.PRIMARY;
+            case 1: return MouseButton.SECONDARY;
+            case 2: return MouseButton.MIDDLE;
+            default: return MouseButton.NONE;
+        }
+    }
+
+    /**
+     * Turns JME mouse events that hit the input target into JavaFX events for the node.
+     */
+    private final class MouseForwarder implements RawInputListener {
+
+        @Override
+        public void onMouseMotionEvent(MouseMotionEvent evt) {
+            Vector2f hit = pick(evt.getX(), evt.getY());
+            if (hit == null) return;
+            lastHit.set(hit);
+            int buttons = buttonsDown;
+            EventType<MouseEvent> type = buttons != 0 ? MouseEvent.MOUSE_DRAGGED : MouseEvent.MOUSE_MOVED;
+            Platform.runLater(() -> fire(type, hit.x, hit.y, MouseButton.NONE, buttons));
+        }
+
+        @Override
+        public void onMouseButtonEvent(MouseButtonEvent evt) {
+            int bit = 1 << evt.getButtonIndex();
+            Vector2f hit = pick(evt.getX(), evt.getY());
+            if (hit == null) {
+                // a release off the panel must still reach the node, or it stays pressed.
+                if (evt.isPressed() || (buttonsDown & bit) == 0 || lastHit.x < 0) return;
+                hit = lastHit.clone();
+            }
+            lastHit.set(hit);
+            buttonsDown = evt.isPressed() ? buttonsDown | bit : buttonsDown & ~bit;
+            evt.setConsumed();
+
+            int buttons = buttonsDown;
+            float x = hit.x, y = hit.y;
+            MouseButton button = toFXButton(evt.getButtonIndex());
+            EventType<MouseEvent> type = evt.isPressed() ? MouseEvent.MOUSE_PRESSED : MouseEvent.MOUSE_RELEASED;
+            Platform.runLater(() -> fire(type, x, y, button, buttons));
+        }
+
+        @Override
+        public void beginInput() {}
+
+        @Override
+        public void endInput() {}
+
+        @Override
+        public void onJoyAxisEvent(JoyAxisEvent evt) {}
+
+        @Override
+        public void onJoyButtonEvent(JoyButtonEvent evt) {}
+
+        @Override
+        public void onKeyEvent(KeyInputEvent evt) {}
+
+        @Override
+        public void onTouchEvent(TouchEvent evt) {}
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.glowlux.driftjme.util;
+
+import com.github.glowlux.driftjme.FXContext;
+import com.github.glowlux.driftjme.FixedTimestep;
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+
+/**
+ * Base for app states whose logic, such as physics or AI, should run at a fixed rate rather than once per frame.
+ * <p>
+ * Every frame {@link #fixedUpdate(float)} is called once for each step of the {@link FixedTimestep} due this
+ * frame, possibly not at all, and then {@link #interpolate(float)} with the interpolation alpha, to place what is
+ * rendered between the last two simulated states. When rendering through an {@link FXContext} the context's
+ * timestep is shared by every such state, set its rate with
+ * {@code fxContext.getFixedTimestep().setStepRate(30)}. With any other context each state advances a timestep of
+ * its own, configured through {@link #getTimestep()} before the state is attached.
+ * </p>
+ *
+ * @author glowlux
+ */
+public abstract class FixedStepAppState extends AbstractAppState {
+
+    private FixedTimestep timestep = new FixedTimestep();
+    private boolean ownsTimestep = true;
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        if (app.getContext() instanceof FXContext) {
+            timestep = ((FXContext) app.getContext()).getFixedTimestep();
+            ownsTimestep = false;
+        }
+    }
+
+    /**
+     * @return the timestep this state runs at.
+     */
+    public FixedTimestep getTimestep() {
+        return timestep;
+    }
+
+    /**
+     * @return how far the current frame is between the last step and the next, from 0 to 1.
+     */
+    public float getAlpha() {
+        return timestep.getAlpha();
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        if (ownsTimestep) timestep.advance(System.nanoTime());
+
+        int steps = timestep.getStepCount();
+        float stepSeconds = timestep.getStepSeconds();
+        for (int i = 0; i < steps; i++) {
+            fixedUpdate(stepSeconds);
+        }
+        interpolate(timestep.getAlpha());
+    }
+
+    /**
+     * Run one logic step.
+     * @param stepSeconds the length of the step in seconds, the same every step at a fixed rate.
+     */
+    protected abstract void fixedUpdate(float stepSeconds);
+
+    /**
+     * Update what is rendered for the current frame, after this frame's steps have run.
+     * @param alpha how far the frame is between the last step, 0, and the next, 1.
+     */
+    protected void interpolate(float alpha) {}
+}
@@ -0,0 +1,299 @@
+package com.github.glowlux.driftjme.util;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.input.InputManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.Image;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Finds the geometry under the mouse on the GPU instead of casting a ray through the scene graph.
+ * <p>
+ * After each frame the scenes of a viewport are rendered into a 1x1 offscreen target, through a camera whose
+ * frustum is narrowed to the single pixel under the cursor, with every geometry drawn in a flat colour encoding its
+ * index. That pixel is read back through a pixel buffer object and decoded a frame or so later, once the GPU has
+ * finished, so the render thread never waits. Answering what is under the mouse is then a field read.
+ * </p>
+ * <p>
+ * The cursor position comes from the input manager, in the same bottom-left origin pixel coordinates as
+ * {@link com.github.glowlux.driftjme.input.FXMouseInput} produces, or can be set explicitly with
+ * {@link #setPickPosition(Vector2f)}. Geometries are drawn with their bind pose mesh, so skinned models
+ * are picked as if unanimated. Each geometry keeps the face culling of its material's additional render state,
+ * so double sided ones such as foliage and cloth can be picked from behind. Geometries in the sky and gui buckets
+ * are never picked, and transparent or translucent ones are drawn solid, so they hide what is behind them.
+ * </p>
+ *
+ * @author glowlux
+ */
+public class GpuPickingState extends AbstractAppState {
+
+    private static final int READBACK_SLOTS = 3;
+
+    private ViewPort target;
+    private InputManager inputManager;
+    private RenderManager renderManager;
+    private Renderer renderer;
+
+    private final Camera pickCamera = new Camera(1, 1);
+    private FrameBuffer pickBuffer;
+    private Material idMaterial;
+    private final ColorRGBA idColor = new ColorRGBA();
+    private final Slot[] slots = new Slot[READBACK_SLOTS];
+
+    private volatile Vector2f pickPosition; // null follows the cursor.
+    private volatile Geometry picked;
+    private volatile long pickedFrame = -1;
+    private long frame;
+
+    public GpuPickingState() {
+        this(null);
+    }
+
+    /**
+     * @param target the viewport to pick from, or null for the application's main viewport.
+     */
+    public GpuPickingState(ViewPort target) {
+        this.target = target;
+    }
+
+    /**
+     * Pick at a fixed position rather than under the cursor.
+     * @param pickPosition the position in pixels from the bottom left, or null to follow the cursor.
+     */
+    public void setPickPosition(Vector2f pickPosition) {
+        this.pickPosition = pickPosition == null ? null : pickPosition.clone();
+    }
+
+    /**
+     * @return the geometry under the cursor as of the most recent readback, or null if there is none.
+     * Safe to call from any thread.
+     */
+    public Geometry getPickedGeometry() {
+        return picked;
+    }
+
+    /**
+     * @return how many frames old {@link #getPickedGeometry()} is, or -1 if nothing has been read back yet.
+     */
+    public long getPickLatency() {
+        long pickedAt = pickedFrame;
+        return pickedAt < 0 ? -1 : frame - pickedAt;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        if (target == null) target = app.getViewPort();
+        inputManager = app.getInputManager();
+        renderManager = app.getRenderManager();
+        renderer = app.getRenderer();
+
+        // plain RGBA8, never sRGB, so the ID bytes come back exactly as written.
+        pickBuffer = new FrameBuffer(1, 1, 1);
+        pickBuffer.setColorBuffer(Image.Format.RGBA8);
+        pickBuffer.setDepthBuffer(Image.Format.Depth);
+
+        idMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        idMaterial.setColor("Color", idColor);
+
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        frame++;
+
+        // collect any finished readback, newest wins.
+        for (Slot slot : slots) {
+            if (slot.inFlight()) slot.poll();
+        }
+
+        Slot free = null;
+        for (Slot slot : slots) {
+            if (!slot.inFlight()) {
+                free = slot;
+                break;
+            }
+        }
+        if (free == null) return; // the GPU is behind, skip a frame rather than wait.
+
+        Vector2f position = pickPosition != null ? pickPosition : inputManager.getCursorPosition();
+        Camera camera = target.getCamera();
+        if (!narrowToPixel(camera, position)) {
+            picked = null;
+            pickedFrame = frame;
+            return;
+        }
+
+        renderPick(free);
+    }
+
+    /**
+     * Set up the pick camera to see only the pixel at the given position through the given camera.
+     * @return false if the position is outside the camera's viewport.
+     */
+    private boolean narrowToPixel(Camera camera, Vector2f position) {
+        float viewLeft = camera.getViewPortLeft() * camera.getWidth();
+        float viewBottom = camera.getViewPortBottom() * camera.getHeight();
+        float viewWidth = (camera.getViewPortRight() - camera.getViewPortLeft()) * camera.getWidth();
+        float viewHeight = (camera.getViewPortTop() - camera.getViewPortBottom()) * camera.getHeight();
+        float x = FastMath.floor(position.x) - viewLeft;
+        float y = FastMath.floor(position.y) - viewBottom;
+        if (x < 0 || y < 0 || x >= viewWidth || y >= viewHeight) return false;
+
+        pickCamera.copyFrom(camera);
+        pickCamera.resize(1, 1, false);
+        pickCamera.setViewPort(0, 1, 0, 1);
+
+        float left = camera.getFrustumLeft(), right = camera.getFrustumRight();
+        float bottom = camera.getFrustumBottom(), top = camera.getFrustumTop();
+        pickCamera.setFrustum(camera.getFrustumNear(), camera.getFrustumFar(),
+                left + (right - left) * x / viewWidth, left + (right - left) * (x + 1) / viewWidth,
+                bottom + (top - bottom) * (y + 1) / viewHeight, bottom + (top - bottom) * y / viewHeight);
+        return true;
+    }
+
+    private void renderPick(Slot slot) {
+        renderManager.setCamera(pickCamera, false);
+        renderer.setFrameBuffer(pickBuffer);
+        renderer.setBackgroundColor(ColorRGBA.BlackNoAlpha);
+        renderer.clearBuffers(true, true, false);
+
+        renderManager.setForcedMaterial(idMaterial);
+        slot.geometries.clear();
+        for (Spatial scene : target.getScenes()) {
+            pickCamera.setPlaneState(0);
+            renderIds(scene, slot.geometries);
+        }
+        renderManager.setForcedMaterial(null);
+
+        slot.start();
+        renderer.setFrameBuffer(null);
+    }
+
+    private void renderIds(Spatial spatial, List<Geometry> geometries) {
+        if (spatial.getCullHint() == Spatial.CullHint.Always) return;
+        // skies are drawn at infinity and the gui in screen space, neither through the pick camera like the rest.
+        RenderQueue.Bucket bucket = spatial.getQueueBucket();
+        if (bucket == RenderQueue.Bucket.Sky || bucket == RenderQueue.Bucket.Gui) return;
+        if (spatial.getCullHint() != Spatial.CullHint.Never
+                && spatial.getWorldBound() != null
+                && pickCamera.contains(spatial.getWorldBound()) == Camera.FrustumIntersect.Outside) return;
+
+        if (spatial instanceof Node) {
+            // contains() marks the planes a bound is fully inside so children can skip them, restore for each child.
+            int planeState = pickCamera.getPlaneState();
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                pickCamera.setPlaneState(planeState);
+                renderIds(child, geometries);
+            }
+        } else if (spatial instanceof Geometry) {
+            if (geometries.size() == 0xFFFFFF) return; // out of 24 bit IDs.
+            geometries.add((Geometry) spatial);
+            int id = geometries.size(); // 0 is nothing.
+            idColor.set((id & 0xFF) / 255f, ((id >> 8) & 0xFF) / 255f, ((id >> 16) & 0xFF) / 255f, 1f);
+            idMaterial.setColor("Color", idColor);
+            Material material = ((Geometry) spatial).getMaterial();
+            idMaterial.getAdditionalRenderState().setFaceCullMode(material != null
+                    ? material.getAdditionalRenderState().getFaceCullMode() : RenderState.FaceCullMode.Back);
+            renderManager.renderGeometry((Geometry) spatial);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                slots[i].dispose();
+                slots[i] = null;
+            }
+        }
+        renderer.deleteFrameBuffer(pickBuffer);
+        picked = null;
+    }
+
+    /**
+     * One pixel read back through a pixel buffer object, and the geometries its ID refers to.
+     */
+    private final class Slot {
+
+        private final int pbo;
+        private final List<Geometry> geometries = new ArrayList<>();
+        private long fence;
+        private long startedFrame;
+
+        Slot() {
+            pbo = glGenBuffers();
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            glBufferData(GL_PIXEL_PACK_BUFFER, 4, GL_STREAM_READ);
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        }
+
+        boolean inFlight() {
+            return fence != 0;
+        }
+
+        void start() {
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            glReadPixels(0, 0, 1, 1, GL_RGBA, GL_UNSIGNED_BYTE, 0);
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+            fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            startedFrame = frame;
+        }
+
+        void poll() {
+            int status = glClientWaitSync(fence, 0, 0);
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) return;
+            glDeleteSync(fence);
+            fence = 0;
+
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            ByteBuffer pixel = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0, 4, GL_MAP_READ_BIT);
+            if (pixel != null) {
+                int id = (pixel.get(0) & 0xFF) | (pixel.get(1) & 0xFF) << 8 | (pixel.get(2) & 0xFF) << 16;
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+                if (startedFrame > pickedFrame) { // an older slot finishing late mustn't overwrite a newer answer.
+                    picked = id > 0 && id <= geometries.size() ? geometries.get(id - 1) : null;
+                    pickedFrame = startedFrame;
+                }
+            }
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+            geometries.clear();
+        }
+
+        void dispose() {
+            if (fence != 0) glDeleteSync(fence);
+            glDeleteBuffers(pbo);
+            geometries.clear();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.glowlux.driftjme.util;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+
+/**
+ * A JavaFX overlay showing performance data sampled by a {@link PerformanceHudState}, intended to be stacked over
+ * the DriftFX surface. It only repaints a few times per second, and only while it is in a scene.
+ *
+ * <pre>
+ * PerformanceHudState hudState = new PerformanceHudState();
+ * app.getStateManager().attach(hudState);
+ * stackPane.getChildren().add(new PerformanceHud(hudState)); // on the JavaFX thread.
+ * </pre>
+ *
+ * @author glowlux
+ */
+public class PerformanceHud extends VBox {
+
+    private static final double GRAPH_WIDTH = 240;
+    private static final double GRAPH_HEIGHT = 60;
+    private static final float GRAPH_MAX_MS = 50f; // frame times above this are clipped.
+
+    private final PerformanceHudState state;
+    private final Label summary = new Label();
+    private final Canvas graph = new Canvas(GRAPH_WIDTH, GRAPH_HEIGHT);
+    private final Timeline repaint;
+
+    private PerformanceHudState.Snapshot painted;
+
+    public PerformanceHud(PerformanceHudState state) {
+        this(state, Duration.millis(250));
+    }
+
+    /**
+     * @param state the state sampling the application.
+     * @param repaintInterval how often to check for a new snapshot and repaint.
+     */
+    public PerformanceHud(PerformanceHudState state, Duration repaintInterval) {
+        this.state = state;
+
+        setSpacing(4);
+        setPadding(new Insets(6));
+        setMaxSize(USE_PREF_SIZE, USE_PREF_SIZE);
+        setMouseTransparent(true);
+        setBackground(new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.6), new CornerRadii(4), Insets.EMPTY)));
+
+        summary.setTextFill(Color.WHITE);
+        summary.setStyle("-fx-font-family: monospace; -fx-font-size: 11px;");
+        getChildren().addAll(summary, graph);
+
+        repaint = new Timeline(new KeyFrame(repaintInterval, event -> repaint()));
+        repaint.setCycleCount(Timeline.INDEFINITE);
+
+        sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                repaint.play();
+            } else {
+                repaint.stop();
+            }
+        });
+    }
+
+    private void repaint() {
+        PerformanceHudState.Snapshot snapshot = state.getSnapshot();
+        if (snapshot == null || snapshot == painted) return;
+        painted = snapshot;
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%.1f fps", snapshot.getFps()));
+        if (snapshot.getCpuFrameMs() >= 0) text.append(String.format("  cpu %.2f ms", snapshot.getCpuFrameMs()));
+        if (snapshot.getGpuFrameMs() >= 0) text.append(String.format("  gpu %.2f ms", snapshot.getGpuFrameMs()));
+        text.append(String.format("%nobjects %d  triangles %d  vertices %d", snapshot.getObjects(), snapshot.getTriangles(), snapshot.getVertices()));
+        text.append(String.format("%ntextures %d  shaders %d  framebuffers %d", snapshot.getTextures(), snapshot.getShaders(), snapshot.getFrameBuffers()));
+        if (snapshot.getSwapchain() != null) text.append("\nswapchain ").append(snapshot.getSwapchain());
+        summary.setText(text.toString());
+
+        paintGraph(snapshot.getFrameTimesMs());
+    }
+
+    private void paintGraph(float[] frameTimes) {
+        GraphicsContext g = graph.getGraphicsContext2D();
+        g.clearRect(0, 0, GRAPH_WIDTH, GRAPH_HEIGHT);
+
+        // reference lines at 60 and 30 fps.
+        g.setStroke(Color.rgb(255, 255, 255, 0.3));
+        g.setLineWidth(1);
+        for (float ms : new float[]{1000f / 60f, 1000f / 30f}) {
+            double y = GRAPH_HEIGHT - GRAPH_HEIGHT * ms / GRAPH_MAX_MS;
+            g.strokeLine(0, y, GRAPH_WIDTH, y);
+        }
+
+        double barWidth = GRAPH_WIDTH / PerformanceHudState.FRAME_HISTORY;
+        double x = GRAPH_WIDTH - frameTimes.length * barWidth;
+        for (float ms : frameTimes) {
+            double height = GRAPH_HEIGHT * Math.min(ms, GRAPH_MAX_MS) / GRAPH_MAX_MS;
+            g.setFill(ms > 1000f / 30f ? Color.ORANGERED : ms > 1000f / 60f ? Color.GOLD : Color.LIMEGREEN);
+            g.fillRect(x, GRAPH_HEIGHT - height, barWidth, height);
+            x += barWidth;
+        }
+    }
+}
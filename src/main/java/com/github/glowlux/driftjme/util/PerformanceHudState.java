@@ -0,0 +1,231 @@
+package com.github.glowlux.driftjme.util;
+
+import com.github.glowlux.driftjme.FXContext;
+import com.github.glowlux.driftjme.FrameTimings;
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.renderer.Statistics;
+
+/**
+ * Samples performance data on the render thread for a {@link PerformanceHud}.
+ * <p>
+ * Frame times are recorded every frame into a ring buffer, everything else is only read when a snapshot is taken,
+ * a few times per second. Snapshots are immutable and published through a volatile field, so the JavaFX thread can
+ * read the latest one without locking, and nothing is drawn inside the 3D scene.
+ * </p>
+ *
+ * @author glowlux
+ */
+public class PerformanceHudState extends AbstractAppState {
+
+    public static final int FRAME_HISTORY = 120;
+
+    private final float snapshotInterval;
+
+    private final float[] frameTimes = new float[FRAME_HISTORY];
+    private int frameIndex;
+    private int frameCount;
+    private float sinceSnapshot;
+
+    private Application app;
+    private Statistics statistics;
+    private boolean statisticsWereEnabled;
+    private int[] statisticsData;
+    private int objectsIndex, trianglesIndex, verticesIndex, texturesIndex, shadersIndex, frameBuffersIndex;
+
+    private volatile Snapshot snapshot;
+
+    public PerformanceHudState() {
+        this(0.25f);
+    }
+
+    /**
+     * @param snapshotInterval seconds between snapshots.
+     */
+    public PerformanceHudState(float snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        this.app = app;
+
+        statistics = app.getRenderer().getStatistics();
+        statisticsWereEnabled = statistics.isEnabled();
+        statistics.setEnabled(true);
+
+        String[] labels = statistics.getLabels();
+        statisticsData = new int[labels.length];
+        objectsIndex = indexOf(labels, "Objects");
+        trianglesIndex = indexOf(labels, "Triangles");
+        verticesIndex = indexOf(labels, "Vertices");
+        texturesIndex = indexOf(labels, "Textures (M)");
+        shadersIndex = indexOf(labels, "Shaders (M)");
+        frameBuffersIndex = indexOf(labels, "FrameBuffers (M)");
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        frameTimes[frameIndex] = tpf * 1000f;
+        frameIndex = (frameIndex + 1) % FRAME_HISTORY;
+        if (frameCount < FRAME_HISTORY) frameCount++;
+        sinceSnapshot += tpf;
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        // statistics describe the frame just rendered, so they are read here rather than in update. The FXContext
+        // clears the per frame counts once the frame is over.
+        if (sinceSnapshot >= snapshotInterval) {
+            sinceSnapshot = 0;
+            snapshot = takeSnapshot();
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        statistics.setEnabled(statisticsWereEnabled);
+    }
+
+    /**
+     * @return the latest snapshot, or null if none has been taken yet. Safe to call from any thread.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private Snapshot takeSnapshot() {
+        float[] history = new float[frameCount];
+        float total = 0;
+        for (int i = 0; i < frameCount; i++) {
+            history[i] = frameTimes[(frameIndex - frameCount + i + FRAME_HISTORY) % FRAME_HISTORY];
+            total += history[i];
+        }
+        float fps = total > 0 ? frameCount * 1000f / total : 0;
+
+        statistics.getData(statisticsData);
+
+        String swapchain = null;
+        float cpuFrameMs = -1, gpuFrameMs = -1;
+        if (app.getContext() instanceof FXContext) {
+            FXContext context = (FXContext) app.getContext();
+            swapchain = context.getSurfaceWidth() + "x" + context.getSurfaceHeight()
+                    + " " + context.getSwapchainImageCount() + "x " + context.getPresentationMode()
+                    + " " + context.getTransferType();
+            FrameTimings timings = context.getFrameTimings();
+            cpuFrameMs = timings.getFrameNanos() / 1e6f;
+            if (context.isGpuTimingEnabled() && timings.getGpuFrameCount() > 0) {
+                gpuFrameMs = timings.getGpuFrameNanos() / 1e6f;
+            }
+        }
+
+        return new Snapshot(history, fps, cpuFrameMs, gpuFrameMs,
+                stat(objectsIndex), stat(trianglesIndex), stat(verticesIndex),
+                stat(texturesIndex), stat(shadersIndex), stat(frameBuffersIndex), swapchain);
+    }
+
+    private int stat(int index) {
+        return index < 0 ? 0 : statisticsData[index];
+    }
+
+    private static int indexOf(String[] labels, String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(label)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * An immutable sample of performance data.
+     */
+    public static final class Snapshot {
+
+        private final float[] frameTimesMs;
+        private final float fps;
+        private final float cpuFrameMs;
+        private final float gpuFrameMs;
+        private final int objects;
+        private final int triangles;
+        private final int vertices;
+        private final int textures;
+        private final int shaders;
+        private final int frameBuffers;
+        private final String swapchain;
+
+        Snapshot(float[] frameTimesMs, float fps, float cpuFrameMs, float gpuFrameMs, int objects, int triangles,
+                 int vertices, int textures, int shaders, int frameBuffers, String swapchain) {
+            this.frameTimesMs = frameTimesMs;
+            this.fps = fps;
+            this.cpuFrameMs = cpuFrameMs;
+            this.gpuFrameMs = gpuFrameMs;
+            this.objects = objects;
+            this.triangles = triangles;
+            this.vertices = vertices;
+            this.textures = textures;
+            this.shaders = shaders;
+            this.frameBuffers = frameBuffers;
+            this.swapchain = swapchain;
+        }
+
+        /**
+         * @return recent frame times in milliseconds, oldest first. Must not be modified.
+         */
+        public float[] getFrameTimesMs() {
+            return frameTimesMs;
+        }
+
+        public float getFps() {
+            return fps;
+        }
+
+        /**
+         * @return CPU time of the last frame in milliseconds, or -1 if not rendering through an {@link FXContext}.
+         */
+        public float getCpuFrameMs() {
+            return cpuFrameMs;
+        }
+
+        /**
+         * @return GPU time of a recent frame in milliseconds, or -1 if GPU timing is disabled.
+         */
+        public float getGpuFrameMs() {
+            return gpuFrameMs;
+        }
+
+        public int getObjects() {
+            return objects;
+        }
+
+        public int getTriangles() {
+            return triangles;
+        }
+
+        public int getVertices() {
+            return vertices;
+        }
+
+        public int getTextures() {
+            return textures;
+        }
+
+        public int getShaders() {
+            return shaders;
+        }
+
+        public int getFrameBuffers() {
+            return frameBuffers;
+        }
+
+        /**
+         * @return a description of the swapchain, or null if not rendering through an {@link FXContext}.
+         */
+        public String getSwapchain() {
+            return swapchain;
+        }
+    }
+}
@@ -42,13 +42,23 @@ import com.jme3.input.InputManager;
 import com.jme3.input.KeyInput;
 import com.jme3.input.MouseInput;
 import com.jme3.input.controls.*;
+import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.github.glowlux.driftjme.input.FXMouseInput;
 
 /**
  * Simple camera that requires right click to move camera, requires keyboard and mouse.
+ * <p>
+ * With {@link #setLateLatch(boolean) late latching} the camera is moved in {@link #render(RenderManager)}, after
+ * every other state has updated and just before the scene is rendered. When rendering through an FXContext the
+ * newest mouse motion is read straight from the {@link FXMouseInput}, including motion captured since the input
+ * manager last updated, and movement keys drive a velocity integrated over real time rather than moving a fixed
+ * amount per input event, so speed doesn't change with the frame rate.
+ * </p>
  *
  * @author glowlux
  */
@@ -64,6 +74,19 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
     protected Camera camera;
     protected Listener listener;
 
+    protected boolean lateLatch = false;
+    protected float smoothing = 0f;
+
+    // late latch state, render thread only.
+    private FXMouseInput fxMouseInput;
+    private long latchedDeltaX, latchedDeltaY;
+    private float pendingYaw, pendingPitch;
+    // number of keys held for each direction, as W and UP both move forward. Tracked in every mode so switching keeps held keys.
+    private int forward, backward, left, right, rise, lower;
+    private long lastLatchNanos;
+    private final Vector3f velocity = new Vector3f();
+    private final Vector3f targetVelocity = new Vector3f();
+
     // final objects used for camera movement calculations, defined here so the object can be reused across multiple method calls. Treated as new.
     private final Vector3f cameraPositionCalc = new Vector3f();
     private final Vector3f velocityCalc = new Vector3f();
@@ -145,6 +168,107 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
         camera.setLocation(cameraPositionCalc);
     }
 
+    /**
+     * Move the camera just before rendering instead of as input events are dispatched.
+     * @param lateLatch true to enable late latching.
+     */
+    public void setLateLatch(boolean lateLatch) {
+        if (lateLatch != this.lateLatch) {
+            resetLatch();
+        }
+        this.lateLatch = lateLatch;
+    }
+
+    public boolean isLateLatch() {
+        return lateLatch;
+    }
+
+    /**
+     * Set how much late latched motion is smoothed, as the time in seconds for the camera to cover about two thirds
+     * of the remaining distance to where the input says it should be. Smoothing adds latency, 0 disables it.
+     * @param smoothing the smoothing time constant in seconds.
+     */
+    public void setSmoothing(float smoothing) {
+        this.smoothing = Math.max(0f, smoothing);
+    }
+
+    public float getSmoothing() {
+        return smoothing;
+    }
+
+    private void resetLatch() {
+        if (fxMouseInput != null) {
+            latchedDeltaX = fxMouseInput.getCapturedDeltaX();
+            latchedDeltaY = fxMouseInput.getCapturedDeltaY();
+        }
+        pendingYaw = pendingPitch = 0;
+        velocity.zero();
+        lastLatchNanos = 0;
+    }
+
+    /**
+     * Apply the newest input to the camera, integrating movement over the time since the previous latch.
+     */
+    protected void latchCamera() {
+        long now = System.nanoTime();
+        float dt = lastLatchNanos == 0 ? 0f : Math.min((now - lastLatchNanos) / 1e9f, 0.1f);
+        lastLatchNanos = now;
+
+        if (fxMouseInput != null) { // sample the motion that hasn't reached the input manager yet.
+            long totalX = fxMouseInput.getCapturedDeltaX();
+            long totalY = fxMouseInput.getCapturedDeltaY();
+            if (canRotate) {
+                // same scale as the input manager uses for mouse axis triggers.
+                pendingYaw -= (totalX - latchedDeltaX) / 1024f;
+                pendingPitch -= (totalY - latchedDeltaY) / 1024f;
+            }
+            latchedDeltaX = totalX;
+            latchedDeltaY = totalY;
+        }
+        if (!canRotate) {
+            pendingYaw = pendingPitch = 0;
+        }
+
+        // exponential smoothing, frame rate independent. With no smoothing everything is applied immediately.
+        float blend = smoothing > 0 ? 1f - FastMath.exp(-dt / smoothing) : 1f;
+
+        if (pendingYaw != 0 || pendingPitch != 0) {
+            float yaw = pendingYaw * blend;
+            float pitch = pendingPitch * blend;
+            pendingYaw -= yaw;
+            pendingPitch -= pitch;
+            rotateCamera(yaw, initialUpVec);
+            rotateCamera(pitch, camera.getLeft());
+        }
+
+        targetVelocity.zero();
+        camera.getDirection(velocityCalc).multLocal(axis(forward, backward));
+        targetVelocity.addLocal(velocityCalc);
+        camera.getLeft(velocityCalc).multLocal(axis(left, right));
+        targetVelocity.addLocal(velocityCalc);
+        velocityCalc.set(initialUpVec).multLocal(axis(rise, lower));
+        targetVelocity.addLocal(velocityCalc).multLocal(moveSpeed);
+
+        velocity.interpolateLocal(targetVelocity, blend);
+        if (velocity.lengthSquared() > FastMath.ZERO_TOLERANCE) {
+            cameraPositionCalc.set(camera.getLocation()).addLocal(velocityCalc.set(velocity).multLocal(dt));
+            camera.setLocation(cameraPositionCalc);
+        } else {
+            velocity.zero();
+        }
+    }
+
+    private static float axis(int positive, int negative) {
+        return (positive > 0 ? 1f : 0f) - (negative > 0 ? 1f : 0f);
+    }
+
+    /**
+     * @return the number of keys held for a direction after a press or release of one of them.
+     */
+    private static int held(int count, boolean isPressed) {
+        return isPressed ? count + 1 : Math.max(0, count - 1); // a key held before the mappings were added is released unseen.
+    }
+
     @Override
     public void initialize(AppStateManager stateManager, Application app) {
         super.initialize(stateManager, app);
@@ -153,6 +277,11 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
         camera = app.getCamera();
         listener = app.getListener();
 
+        if (app.getContext().getMouseInput() instanceof FXMouseInput) {
+            fxMouseInput = (FXMouseInput) app.getContext().getMouseInput();
+        }
+        resetLatch();
+
         initialUpVec = camera.getUp().clone();
 
         inputManager.addMapping(EditorCameraInputs.EDITOR_CAM_FORWARD, new KeyTrigger(KeyInput.KEY_W), new KeyTrigger(KeyInput.KEY_UP));
@@ -175,6 +304,16 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
     @Override
     public void update(float tpf) {
         super.update(tpf);
+        if (lateLatch) return; // the listener follows the camera once it has been latched.
+        listener.setLocation(camera.getLocation());
+        listener.setRotation(camera.getRotation());
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        if (!lateLatch) return;
+        latchCamera();
         listener.setLocation(camera.getLocation());
         listener.setRotation(camera.getRotation());
     }
@@ -186,6 +325,10 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
 
     @Override
     public void onAnalog(String name, float value, float tpf) {
+        if (lateLatch) {
+            onLateLatchAnalog(name, value);
+            return;
+        }
         switch (name) {
             case EditorCameraInputs.EDITOR_CAM_FORWARD:
                 moveCamera(value, false);
@@ -226,16 +369,63 @@ public class RightClickCameraAppState extends AbstractAppState implements Analog
         }
     }
 
+    /**
+     * Handle analog input while late latching. Movement keys are tracked in {@link #onAction}, and mouse rotation
+     * is only taken from here when it can't be sampled from an {@link FXMouseInput}.
+     */
+    private void onLateLatchAnalog(String name, float value) {
+        switch (name) {
+            case EditorCameraInputs.EDITOR_CAM_ROTATE_LEFT:
+                if (fxMouseInput == null && canRotate) pendingYaw += value;
+                break;
+            case EditorCameraInputs.EDITOR_CAM_ROTATE_RIGHT:
+                if (fxMouseInput == null && canRotate) pendingYaw -= value;
+                break;
+            case EditorCameraInputs.EDITOR_CAM_ROTATE_UP:
+                if (fxMouseInput == null && canRotate) pendingPitch -= value;
+                break;
+            case EditorCameraInputs.EDITOR_CAM_ROTATE_DOWN:
+                if (fxMouseInput == null && canRotate) pendingPitch += value;
+                break;
+            case EditorCameraInputs.EDITOR_CAM_SCROLL_FORWARD:
+                moveCamera(value * scrollSpeed, false);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_SCROLL_BACKWARD:
+                moveCamera(-value * scrollSpeed, false);
+                break;
+        }
+    }
+
     @Override
     public void onAction(String name, boolean isPressed, float tpf) {
-        if (EditorCameraInputs.EDITOR_CAM_ROTATE_TOGGLE.equals(name)) {
-            if (isPressed) {
-                inputManager.setCursorVisible(false);
-                canRotate = true;
-            } else {
-                inputManager.setCursorVisible(true);
-                canRotate = false;
-            }
+        switch (name) {
+            case EditorCameraInputs.EDITOR_CAM_ROTATE_TOGGLE:
+                if (isPressed) {
+                    inputManager.setCursorVisible(false);
+                    canRotate = true;
+                } else {
+                    inputManager.setCursorVisible(true);
+                    canRotate = false;
+                }
+                break;
+            case EditorCameraInputs.EDITOR_CAM_FORWARD:
+                forward = held(forward, isPressed);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_BACKWARD:
+                backward = held(backward, isPressed);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_LEFT:
+                left = held(left, isPressed);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_RIGHT:
+                right = held(right, isPressed);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_RISE:
+                rise = held(rise, isPressed);
+                break;
+            case EditorCameraInputs.EDITOR_CAM_LOWER:
+                lower = held(lower, isPressed);
+                break;
         }
     }
 }
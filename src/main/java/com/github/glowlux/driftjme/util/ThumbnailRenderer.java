@@ -0,0 +1,553 @@
+package com.github.glowlux.driftjme.util;
+
+import com.github.glowlux.driftjme.FXContext;
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.light.AmbientLight;
+import com.jme3.light.DirectionalLight;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.Image;
+import javafx.application.Platform;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_BGRA;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Renders thumbnails of models as JavaFX images, using the GL context of the application it is attached to.
+ * <p>
+ * Requests are rendered in batches into the cells of a reusable offscreen atlas, a few per frame, and each batch
+ * is read back through a pixel buffer object once the GPU has finished with it, so the render thread never waits
+ * on the GPU. Models requested by asset key are loaded on a background thread. Finished images are cached, keyed
+ * by what was rendered and how, and the least recently used are evicted once the cache is full.
+ * </p>
+ *
+ * <pre>
+ * ThumbnailRenderer thumbnails = new ThumbnailRenderer();
+ * app.getStateManager().attach(thumbnails);
+ * thumbnails.request(new ModelKey("Models/Tree.j3o"), image -> imageView.setImage(image)); // from any thread.
+ * </pre>
+ *
+ * Callbacks are always run on the JavaFX thread.
+ *
+ * @author glowlux
+ */
+public class ThumbnailRenderer extends AbstractAppState {
+
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailRenderer.class.getName());
+
+    public static final int DEFAULT_THUMBNAIL_SIZE = 128;
+    public static final int DEFAULT_ATLAS_SIZE = 1024;
+    public static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    private static final int READBACK_SLOTS = 2;
+    private static final float FIELD_OF_VIEW = 30f;
+
+    private final int thumbnailSize;
+    private final int atlasSize;
+    private final int columns;
+    private final int cellsPerBatch;
+
+    private final Map<Key, javafx.scene.image.Image> cache;
+    private final Map<Key, Request> pending = new HashMap<>(); // guarded by cache.
+    private final Queue<Request> queued = new ConcurrentLinkedQueue<>();
+    private final Queue<Request> ready = new ConcurrentLinkedQueue<>();
+
+    private volatile ColorRGBA background = new ColorRGBA(0, 0, 0, 0);
+    private volatile Vector3f viewDirection = new Vector3f(-1, -1, -1).normalizeLocal();
+    private volatile int maxPerFrame;
+
+    // render thread only.
+    private ExecutorService loader;
+    private RenderManager renderManager;
+    private AssetManager assetManager;
+    private FrameBuffer atlas;
+    private Camera camera;
+    private ViewPort viewPort;
+    private final Node root = new Node("Thumbnails");
+    private final DirectionalLight sun = new DirectionalLight();
+    private final Readback[] readbacks = new Readback[READBACK_SLOTS];
+
+    public ThumbnailRenderer() {
+        this(DEFAULT_THUMBNAIL_SIZE, DEFAULT_ATLAS_SIZE, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param thumbnailSize the width and height of each thumbnail in pixels.
+     * @param atlasSize the width and height of the offscreen atlas, which bounds how many thumbnails are rendered
+     *                  in one batch.
+     * @param cacheCapacity the number of images kept in the cache.
+     */
+    public ThumbnailRenderer(int thumbnailSize, int atlasSize, int cacheCapacity) {
+        if (thumbnailSize <= 0 || atlasSize < thumbnailSize) throw new IllegalArgumentException("atlas must hold at least one thumbnail");
+        this.thumbnailSize = thumbnailSize;
+        this.atlasSize = atlasSize;
+        this.columns = atlasSize / thumbnailSize;
+        this.cellsPerBatch = columns * columns;
+        this.maxPerFrame = cellsPerBatch;
+        this.cache = new LinkedHashMap<Key, javafx.scene.image.Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, javafx.scene.image.Image> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+
+        root.addLight(new AmbientLight(ColorRGBA.White.mult(0.4f)));
+        root.addLight(sun);
+    }
+
+    /**
+     * Set the background of thumbnails rendered from now on, transparent by default.
+     * @param background the background colour.
+     */
+    public void setBackground(ColorRGBA background) {
+        this.background = background.clone();
+    }
+
+    public ColorRGBA getBackground() {
+        return background.clone();
+    }
+
+    /**
+     * Set the direction the camera looks at models from for thumbnails rendered from now on.
+     * @param viewDirection the view direction, down and across the model by default.
+     */
+    public void setViewDirection(Vector3f viewDirection) {
+        this.viewDirection = viewDirection.normalize();
+    }
+
+    public Vector3f getViewDirection() {
+        return viewDirection.clone();
+    }
+
+    /**
+     * Limit how many thumbnails are rendered per frame, to keep the cost of a batch from showing as a hitch.
+     * @param maxPerFrame the maximum, by default everything that fits in the atlas.
+     */
+    public void setMaxPerFrame(int maxPerFrame) {
+        this.maxPerFrame = Math.max(1, Math.min(maxPerFrame, cellsPerBatch));
+    }
+
+    public int getMaxPerFrame() {
+        return maxPerFrame;
+    }
+
+    /**
+     * Request a thumbnail of a model. Safe to call from any thread.
+     * @param key the model to load.
+     * @param callback given the thumbnail on the JavaFX thread, or null if the model couldn't be loaded or the
+     *                 renderer was detached first.
+     */
+    public void request(AssetKey<? extends Spatial> key, Consumer<javafx.scene.image.Image> callback) {
+        submit(key, key, null, callback);
+    }
+
+    /**
+     * Request a thumbnail of a spatial. Safe to call from any thread, but the spatial must not change until the
+     * callback has run, it is cloned on the render thread when its batch is rendered.
+     * @param cacheKey identifies the spatial in the cache.
+     * @param spatial the spatial to render.
+     * @param callback given the thumbnail on the JavaFX thread, or null if the renderer was detached first.
+     */
+    public void request(Object cacheKey, Spatial spatial, Consumer<javafx.scene.image.Image> callback) {
+        submit(cacheKey, null, spatial, callback);
+    }
+
+    /**
+     * @param key the model.
+     * @return the cached thumbnail of a model with the current settings, or null if there is none.
+     */
+    public javafx.scene.image.Image getCached(Object key) {
+        synchronized (cache) {
+            return cache.get(new Key(key, thumbnailSize, background, viewDirection));
+        }
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the number of thumbnails requested but not yet delivered.
+     */
+    public int getPendingCount() {
+        synchronized (cache) {
+            return pending.size();
+        }
+    }
+
+    private void submit(Object source, AssetKey<? extends Spatial> assetKey, Spatial spatial, Consumer<javafx.scene.image.Image> callback) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(callback);
+        Key key = new Key(source, thumbnailSize, background, viewDirection);
+        Request request;
+        synchronized (cache) {
+            javafx.scene.image.Image image = cache.get(key);
+            if (image != null) {
+                Platform.runLater(() -> callback.accept(image));
+                return;
+            }
+            request = pending.get(key);
+            if (request != null) { // already on its way, share the result.
+                request.callbacks.add(callback);
+                return;
+            }
+            request = new Request(key, assetKey, spatial);
+            request.callbacks.add(callback);
+            pending.put(key, request);
+        }
+        queued.add(request);
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        renderManager = app.getRenderManager();
+        assetManager = app.getAssetManager();
+        loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Thumbnail loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // JavaFX expects sRGB encoded pixels, so encode on write whenever the application renders in linear space.
+        boolean srgb = app.getContext() instanceof FXContext
+                ? ((FXContext) app.getContext()).isSrgbOutput()
+                : app.getContext().getSettings().isGammaCorrection();
+        atlas = new FrameBuffer(atlasSize, atlasSize, 1);
+        atlas.setColorBuffer(Image.Format.RGBA8);
+        atlas.setDepthBuffer(Image.Format.Depth);
+        atlas.setSrgb(srgb);
+
+        camera = new Camera(atlasSize, atlasSize);
+        viewPort = new ViewPort("Thumbnails", camera);
+        viewPort.setOutputFrameBuffer(atlas);
+        viewPort.attachScene(root);
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        Request request;
+        while ((request = queued.poll()) != null) {
+            if (request.assetKey == null) {
+                ready.add(request);
+                continue;
+            }
+            Request load = request;
+            loader.execute(() -> {
+                try {
+                    load.spatial = assetManager.loadAsset(load.assetKey);
+                    ready.add(load);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Couldn't load " + load.assetKey + " for a thumbnail.", e);
+                    deliver(load, null);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        Readback free = null;
+        int unused = -1;
+        for (int i = 0; i < readbacks.length; i++) {
+            Readback readback = readbacks[i];
+            if (readback == null) {
+                if (unused < 0) unused = i;
+                continue;
+            }
+            if (readback.isInFlight()) {
+                readback.poll();
+            }
+            if (free == null && !readback.isInFlight()) free = readback;
+        }
+        if (ready.isEmpty()) return;
+
+        // at most one batch per frame, the other slot only lets it start before the previous one is read back.
+        if (free == null && unused >= 0) {
+            free = readbacks[unused] = new Readback(atlasSize); // the buffers are only allocated once they're needed.
+        }
+        if (free != null) {
+            renderBatch(free);
+        }
+    }
+
+    /**
+     * Render the next batch into the atlas and start reading it back.
+     */
+    private void renderBatch(Readback readback) {
+        int count = 0;
+        int limit = maxPerFrame;
+        ColorRGBA background = null;
+        Request request;
+        while (count < limit && (request = ready.peek()) != null) {
+            // the atlas is cleared once per batch, so a different background has to wait for the next one.
+            if (background != null && !background.equals(request.key.background)) break;
+            background = request.key.background;
+            ready.poll();
+            // the spatial isn't ours when it was handed in directly, so render a copy sharing its meshes.
+            Spatial spatial = request.assetKey == null ? request.spatial.clone(false) : request.spatial;
+            renderCell(spatial, request.key, count);
+            readback.requests.add(request);
+            count++;
+        }
+
+        int rows = (count + columns - 1) / columns;
+        readback.start(rows * thumbnailSize);
+        renderManager.getRenderer().setFrameBuffer(null); // back to the main framebuffer.
+    }
+
+    private void renderCell(Spatial spatial, Key key, int cell) {
+        root.attachChild(spatial);
+        sun.setDirection(key.viewDirection);
+        root.updateLogicalState(0);
+        root.updateGeometricState();
+
+        Vector3f center = new Vector3f();
+        float radius = 1f;
+        BoundingVolume bound = spatial.getWorldBound();
+        if (bound instanceof BoundingSphere) {
+            center.set(bound.getCenter());
+            radius = ((BoundingSphere) bound).getRadius();
+        } else if (bound instanceof BoundingBox) {
+            center.set(bound.getCenter());
+            radius = ((BoundingBox) bound).getExtent(null).length();
+        }
+        radius = Math.max(radius, 0.001f);
+
+        // far enough back for the bounding sphere to fit the frustum.
+        float distance = radius / FastMath.sin(FIELD_OF_VIEW * 0.5f * FastMath.DEG_TO_RAD);
+        float near = Math.max(distance - radius * 1.1f, distance * 0.01f);
+        camera.setFrustumPerspective(FIELD_OF_VIEW, 1f, near, distance + radius * 1.1f);
+        camera.setLocation(center.subtract(key.viewDirection.mult(distance)));
+        Vector3f up = Math.abs(key.viewDirection.y) > 0.99f ? Vector3f.UNIT_Z : Vector3f.UNIT_Y;
+        camera.lookAt(center, up);
+
+        int column = cell % columns;
+        int row = cell / columns;
+        float scale = 1f / atlasSize;
+        camera.setViewPort(column * thumbnailSize * scale, (column + 1) * thumbnailSize * scale,
+                row * thumbnailSize * scale, (row + 1) * thumbnailSize * scale);
+
+        // the clear isn't limited to the cell, so the whole atlas is cleared once per batch.
+        boolean first = cell == 0;
+        viewPort.setClearFlags(first, first, first);
+        viewPort.setBackgroundColor(key.background);
+        renderManager.renderViewPort(viewPort, 0);
+
+        root.detachChild(spatial);
+    }
+
+    /**
+     * Cut the thumbnails of a finished batch out of the mapped pixels and hand them to JavaFX.
+     */
+    private void deliverBatch(List<Request> requests, ByteBuffer pixels) {
+        int rowBytes = thumbnailSize * 4;
+        for (int i = 0; i < requests.size(); i++) {
+            int column = i % columns;
+            int row = i / columns;
+            byte[] bgra = new byte[rowBytes * thumbnailSize];
+            for (int y = 0; y < thumbnailSize; y++) {
+                // GL rows run bottom up, JavaFX rows top down.
+                int source = ((row * thumbnailSize + thumbnailSize - 1 - y) * atlasSize + column * thumbnailSize) * 4;
+                pixels.position(source);
+                pixels.get(bgra, y * rowBytes, rowBytes);
+            }
+            deliver(requests.get(i), bgra);
+        }
+    }
+
+    private void deliver(Request request, byte[] bgra) {
+        Platform.runLater(() -> {
+            WritableImage image = null;
+            if (bgra != null) {
+                image = new WritableImage(thumbnailSize, thumbnailSize);
+                image.getPixelWriter().setPixels(0, 0, thumbnailSize, thumbnailSize,
+                        PixelFormat.getByteBgraInstance(), bgra, 0, thumbnailSize * 4);
+            }
+            synchronized (cache) {
+                if (pending.get(request.key) != request) return; // already failed by cleanup.
+                pending.remove(request.key);
+                if (image != null) cache.put(request.key, image);
+            }
+            for (Consumer<javafx.scene.image.Image> callback : request.callbacks) {
+                callback.accept(image);
+            }
+        });
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        loader.shutdownNow();
+        loader = null;
+        // nothing will render what is still outstanding, so fail it rather than leave callers waiting.
+        queued.clear();
+        ready.clear();
+        List<Request> outstanding;
+        synchronized (cache) {
+            outstanding = new ArrayList<>(pending.values());
+        }
+        for (Request request : outstanding) {
+            deliver(request, null);
+        }
+        for (int i = 0; i < readbacks.length; i++) {
+            if (readbacks[i] != null) {
+                readbacks[i].dispose();
+                readbacks[i] = null;
+            }
+        }
+        renderManager.getRenderer().deleteFrameBuffer(atlas);
+    }
+
+    /**
+     * A pixel buffer the atlas is read back into, and the requests whose thumbnails it holds.
+     */
+    private final class Readback {
+
+        private final int pbo;
+        private final List<Request> requests = new ArrayList<>();
+        private long fence;
+        private int height;
+
+        Readback(int atlasSize) {
+            pbo = glGenBuffers();
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            glBufferData(GL_PIXEL_PACK_BUFFER, (long) atlasSize * atlasSize * 4, GL_STREAM_READ);
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        }
+
+        boolean isInFlight() {
+            return fence != 0;
+        }
+
+        /**
+         * Copy the bottom rows of the atlas, which must be bound, into the buffer without waiting for them.
+         */
+        void start(int height) {
+            this.height = height;
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            glReadPixels(0, 0, atlasSize, height, GL_BGRA, GL_UNSIGNED_BYTE, 0);
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+            fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+
+        /**
+         * Deliver the batch if the GPU has finished copying it.
+         */
+        void poll() {
+            int status = glClientWaitSync(fence, 0, 0);
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) return;
+            glDeleteSync(fence);
+            fence = 0;
+
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, pbo);
+            ByteBuffer pixels = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0, (long) atlasSize * height * 4, GL_MAP_READ_BIT);
+            if (pixels != null) {
+                deliverBatch(requests, pixels);
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+            } else {
+                LOGGER.warning("Couldn't map thumbnail readback buffer, dropping " + requests.size() + " thumbnails.");
+                for (Request request : requests) deliver(request, null);
+            }
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+            requests.clear();
+        }
+
+        void dispose() {
+            if (fence != 0) glDeleteSync(fence);
+            glDeleteBuffers(pbo);
+        }
+    }
+
+    private static final class Request {
+
+        private final Key key;
+        private final AssetKey<? extends Spatial> assetKey;
+        private volatile Spatial spatial;
+        private final List<Consumer<javafx.scene.image.Image>> callbacks = new ArrayList<>(1); // guarded by cache.
+
+        Request(Key key, AssetKey<? extends Spatial> assetKey, Spatial spatial) {
+            this.key = key;
+            this.assetKey = assetKey;
+            this.spatial = spatial;
+        }
+    }
+
+    /**
+     * What a thumbnail shows and how it was rendered.
+     */
+    private static final class Key {
+
+        private final Object source;
+        private final int size;
+        private final ColorRGBA background;
+        private final Vector3f viewDirection;
+
+        Key(Object source, int size, ColorRGBA background, Vector3f viewDirection) {
+            this.source = source;
+            this.size = size;
+            this.background = background;
+            this.viewDirection = viewDirection;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return size == key.size && source.equals(key.source)
+                    && background.equals(key.background) && viewDirection.equals(key.viewDirection);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, size, background, viewDirection);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.glowlux.driftjme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class FixedTimestepTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void stepsOncePerFrameWithoutARate() {
+        FixedTimestep timestep = new FixedTimestep();
+        assertFalse(timestep.isFixed());
+        timestep.advance(1_000 * MS);
+        assertEquals(1, timestep.getStepCount());
+        assertEquals(0f, timestep.getStepSeconds()); // nothing to measure the first frame from.
+
+        timestep.advance(1_016 * MS);
+        assertEquals(1, timestep.getStepCount());
+        assertEquals(0.016f, timestep.getStepSeconds(), 1e-6f);
+        assertEquals(1f, timestep.getAlpha());
+        assertEquals(2, timestep.getTotalSteps());
+    }
+
+    @Test
+    void fastFramesShareSteps() {
+        FixedTimestep timestep = new FixedTimestep();
+        timestep.setStepRate(25); // 40ms steps.
+        assertTrue(timestep.isFixed());
+        timestep.advance(0);
+        assertEquals(0, timestep.getStepCount());
+
+        timestep.advance(10 * MS);
+        assertEquals(0, timestep.getStepCount());
+        assertEquals(0.25f, timestep.getAlpha(), 1e-6f);
+
+        timestep.advance(30 * MS);
+        assertEquals(0, timestep.getStepCount());
+        assertEquals(0.75f, timestep.getAlpha(), 1e-6f);
+
+        timestep.advance(50 * MS);
+        assertEquals(1, timestep.getStepCount());
+        assertEquals(0.04f, timestep.getStepSeconds(), 1e-6f);
+        assertEquals(0.25f, timestep.getAlpha(), 1e-6f); // the 10ms left over.
+        assertEquals(1, timestep.getTotalSteps());
+    }
+
+    @Test
+    void slowFramesRunSeveralSteps() {
+        FixedTimestep timestep = new FixedTimestep();
+        timestep.setStepRate(25);
+        timestep.advance(0);
+
+        timestep.advance(100 * MS);
+        assertEquals(2, timestep.getStepCount());
+        assertEquals(0.5f, timestep.getAlpha(), 1e-6f);
+
+        timestep.advance(160 * MS); // 60ms plus the 20ms carried over.
+        assertEquals(2, timestep.getStepCount());
+        assertEquals(0f, timestep.getAlpha(), 1e-6f);
+        assertEquals(4, timestep.getTotalSteps());
+        assertEquals(0, timestep.getDroppedSteps());
+    }
+
+    @Test
+    void catchUpIsLimitedAndTheRestDropped() {
+        FixedTimestep timestep = new FixedTimestep();
+        timestep.setStepRate(25);
+        timestep.setMaxStepsPerFrame(3);
+        timestep.advance(0);
+
+        timestep.advance(410 * MS); // ten steps and 10ms.
+        assertEquals(3, timestep.getStepCount());
+        assertEquals(7, timestep.getDroppedSteps());
+        assertEquals(3, timestep.getTotalSteps());
+        assertEquals(0.25f, timestep.getAlpha(), 1e-6f);
+
+        timestep.advance(440 * MS); // dropped time isn't caught up on later.
+        assertEquals(1, timestep.getStepCount());
+        assertEquals(7, timestep.getDroppedSteps());
+    }
+
+    @Test
+    void resetForgetsTheTimeSinceTheLastFrame() {
+        FixedTimestep timestep = new FixedTimestep();
+        timestep.setStepRate(25);
+        timestep.advance(0);
+        timestep.advance(30 * MS);
+        timestep.reset();
+
+        timestep.advance(10_000 * MS);
+        assertEquals(0, timestep.getStepCount());
+        assertEquals(0f, timestep.getAlpha());
+        assertEquals(0, timestep.getDroppedSteps());
+
+        timestep.advance(10_040 * MS);
+        assertEquals(1, timestep.getStepCount());
+    }
+
+    @Test
+    void invalidSettingsAreRejectedOrClamped() {
+        FixedTimestep timestep = new FixedTimestep();
+        assertThrows(IllegalArgumentException.class, () -> timestep.setStepRate(-1));
+        timestep.setMaxStepsPerFrame(0);
+        assertEquals(1, timestep.getMaxStepsPerFrame());
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.glowlux.driftjme;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 31; i++) {
+            histogram.record(i);
+        }
+        assertEquals(16, histogram.getValueAtPercentile(50));
+        assertEquals(31, histogram.getValueAtPercentile(100));
+        assertEquals(16, histogram.getMeanNanos());
+    }
+
+    @Test
+    void largeValuesAreWithinBucketPrecision() {
+        long[] values = {1_000, 33_333, 1_000_000, 16_666_667, 123_456_789_012L};
+        for (long value : values) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(value * 2); // above the value, so the percentile isn't capped at the maximum.
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value, value + " reported as " + reported);
+            assertTrue(reported <= value + value / 32, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentilesFollowTheDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) histogram.record(1_000_000); // 1ms
+        for (int i = 0; i < 10; i++) histogram.record(50_000_000); // 50ms
+        assertEquals(100, histogram.getCount());
+
+        long p50 = histogram.getValueAtPercentile(50);
+        long p90 = histogram.getValueAtPercentile(90);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p50 >= 1_000_000 && p50 < 1_040_000, "p50 " + p50);
+        assertEquals(p50, p90);
+        assertEquals(50_000_000, p99); // capped at the maximum recorded.
+        assertEquals(50_000_000, histogram.getMaxNanos());
+        assertEquals(5_900_000, histogram.getMeanNanos());
+    }
+
+    @Test
+    void negativeValuesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
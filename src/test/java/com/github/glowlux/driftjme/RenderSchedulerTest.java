@@ -0,0 +1,94 @@
+package com.github.glowlux.driftjme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class RenderSchedulerTest {
+
+    private static final long TEN_MS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static RenderScheduler.View view(RenderScheduler scheduler, String name, int priority, float target, long cost) {
+        RenderScheduler.View view = scheduler.register(name);
+        scheduler.configure(view, priority, target);
+        scheduler.frameFinished(view, System.nanoTime(), cost);
+        return view;
+    }
+
+    @Test
+    void singleUncappedViewIsNotThrottled() {
+        RenderScheduler scheduler = new RenderScheduler();
+        RenderScheduler.View view = view(scheduler, "main", 0, 0, TEN_MS);
+        assertEquals(100f, view.getFrameRate(), 0.01f); // the whole budget at 10ms a frame.
+    }
+
+    @Test
+    void cappedViewLeavesTheRestToOthers() {
+        RenderScheduler scheduler = new RenderScheduler();
+        RenderScheduler.View preview = view(scheduler, "preview", 0, 10, TEN_MS);
+        RenderScheduler.View main = view(scheduler, "main", 0, 0, TEN_MS);
+        assertEquals(10f, preview.getFrameRate(), 0.01f);
+        assertEquals(90f, main.getFrameRate(), 0.01f);
+    }
+
+    @Test
+    void smallestDemandsAreMetFirstWhenTheBudgetIsShort() {
+        RenderScheduler scheduler = new RenderScheduler();
+        scheduler.setBudget(0.24);
+        RenderScheduler.View a = view(scheduler, "a", 0, 10, TEN_MS); // wants 0.1 of the budget.
+        RenderScheduler.View b = view(scheduler, "b", 0, 20, TEN_MS); // wants 0.2.
+        RenderScheduler.View c = view(scheduler, "c", 0, 0, TEN_MS); // wants everything.
+        // an even split of 0.08 each is less than any of them want.
+        assertEquals(8f, a.getFrameRate(), 0.01f);
+        assertEquals(8f, b.getFrameRate(), 0.01f);
+        assertEquals(8f, c.getFrameRate(), 0.01f);
+
+        scheduler.setBudget(0.5);
+        // a's 0.1 is met, b and c split the remaining 0.4.
+        assertEquals(10f, a.getFrameRate(), 0.01f);
+        assertEquals(20f, b.getFrameRate(), 0.01f);
+        assertEquals(20f, c.getFrameRate(), 0.01f);
+    }
+
+    @Test
+    void uncappedHighPriorityViewStarvesLowerPriorities() {
+        RenderScheduler scheduler = new RenderScheduler();
+        RenderScheduler.View high = view(scheduler, "high", 1, 0, TEN_MS);
+        RenderScheduler.View low = view(scheduler, "low", 0, 0, TEN_MS);
+        assertEquals(100f, high.getFrameRate(), 0.01f);
+        assertEquals(RenderScheduler.MIN_FRAME_RATE, low.getFrameRate(), 0.01f);
+
+        scheduler.configure(high, 1, 60);
+        assertEquals(60f, high.getFrameRate(), 0.01f);
+        assertEquals(40f, low.getFrameRate(), 0.01f);
+    }
+
+    @Test
+    void suspendedViewsTakeNoBudget() {
+        RenderScheduler scheduler = new RenderScheduler();
+        RenderScheduler.View a = view(scheduler, "a", 0, 0, TEN_MS);
+        RenderScheduler.View b = view(scheduler, "b", 0, 0, TEN_MS);
+        assertEquals(50f, a.getFrameRate(), 0.01f);
+
+        scheduler.setActive(b, false);
+        assertEquals(100f, a.getFrameRate(), 0.01f);
+
+        scheduler.unregister(b);
+        scheduler.setActive(b, true); // no longer registered, so it takes nothing either.
+        assertEquals(100f, a.getFrameRate(), 0.01f);
+    }
+
+    @Test
+    void costChangesFollowTheRunningAverage() {
+        RenderScheduler scheduler = new RenderScheduler();
+        RenderScheduler.View view = view(scheduler, "main", 0, 0, TEN_MS);
+        scheduler.frameFinished(view, System.nanoTime(), TEN_MS * 9);
+        assertEquals(TEN_MS * 2, view.getCostNanos()); // an eighth of the way to the new cost.
+        assertEquals(50f, view.getFrameRate(), 0.01f);
+    }
+}
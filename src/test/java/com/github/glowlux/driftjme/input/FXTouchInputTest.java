@@ -0,0 +1,137 @@
+package com.github.glowlux.driftjme.input;
+
+import com.jme3.input.event.TouchEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class FXTouchInputTest {
+
+    private static FXTouchInput input() {
+        return new FXTouchInput(null, null); // queueing and taking frames need neither.
+    }
+
+    /**
+     * Take a frame's events, emptying the queue as {@link FXTouchInput#update()} does.
+     */
+    private static List<TouchEvent> frame(FXTouchInput input) {
+        ArrayDeque<TouchEvent> events = input.takeFrame();
+        List<TouchEvent> taken = new ArrayList<>(events);
+        events.clear();
+        return taken;
+    }
+
+    private static void move(FXTouchInput input, int pointer, float x, float y, float dx, float dy) {
+        input.queue(TouchEvent.Type.MOVE, pointer, x, y, dx, dy, pointer);
+    }
+
+    @Test
+    void movesOfOnePointerMergeIntoTheLatest() {
+        FXTouchInput input = input();
+        input.queue(TouchEvent.Type.DOWN, 1, 10, 10, 0, 0, null);
+        move(input, 1, 11, 11, 1, 1);
+        move(input, 1, 13, 14, 2, 3);
+        move(input, 1, 16, 14, 3, 0);
+
+        List<TouchEvent> events = frame(input);
+        assertEquals(2, events.size());
+        TouchEvent moved = events.get(1);
+        assertEquals(TouchEvent.Type.MOVE, moved.getType());
+        assertEquals(1, moved.getPointerId());
+        assertEquals(16f, moved.getX());
+        assertEquals(14f, moved.getY());
+        assertEquals(6f, moved.getDeltaX());
+        assertEquals(4f, moved.getDeltaY());
+
+        assertEquals(4, input.getFrameReceivedCount());
+        assertEquals(2, input.getFrameCoalescedCount());
+        assertEquals(2, input.getFrameDispatchedCount());
+    }
+
+    @Test
+    void pointersMergeSeparatelyAndNotAcrossPressesOrFrames() {
+        FXTouchInput input = input();
+        move(input, 1, 0, 0, 0, 0);
+        move(input, 2, 50, 50, 0, 0);
+        move(input, 1, 5, 0, 5, 0);
+        input.queue(TouchEvent.Type.UP, 1, 5, 0, 0, 0, null);
+        input.queue(TouchEvent.Type.DOWN, 1, 20, 20, 0, 0, null);
+        move(input, 1, 21, 20, 1, 0);
+
+        List<TouchEvent> events = frame(input);
+        assertEquals(5, events.size());
+        assertEquals(1, events.get(0).getPointerId());
+        assertEquals(5f, events.get(0).getX());
+        assertEquals(2, events.get(1).getPointerId());
+        assertEquals(TouchEvent.Type.UP, events.get(2).getType());
+        assertEquals(TouchEvent.Type.DOWN, events.get(3).getType());
+        assertEquals(21f, events.get(4).getX());
+        assertEquals(1, input.getFrameCoalescedCount());
+
+        move(input, 1, 22, 20, 1, 0); // the last frame's move has already been dispatched.
+        events = frame(input);
+        assertEquals(1, events.size());
+        assertEquals(1f, events.get(0).getDeltaX());
+        assertEquals(0, input.getFrameCoalescedCount());
+    }
+
+    @Test
+    void zoomStepsMultiply() {
+        FXTouchInput input = input();
+        input.queueScale(TouchEvent.Type.SCALE_START, 100, 100, 1f, null);
+        input.queueScale(TouchEvent.Type.SCALE_MOVE, 100, 100, 1.1f, FXTouchInput.ZOOM_POINTER);
+        input.queueScale(TouchEvent.Type.SCALE_MOVE, 102, 100, 1.2f, FXTouchInput.ZOOM_POINTER);
+        input.queueScale(TouchEvent.Type.SCALE_MOVE, 104, 100, 0.5f, FXTouchInput.ZOOM_POINTER);
+        input.queueScale(TouchEvent.Type.SCALE_END, 104, 100, 1f, null);
+
+        List<TouchEvent> events = frame(input);
+        assertEquals(3, events.size());
+        TouchEvent zoom = events.get(1);
+        assertEquals(TouchEvent.Type.SCALE_MOVE, zoom.getType());
+        assertEquals(0.66f, zoom.getScaleFactor(), 1e-5f);
+        assertEquals(104f, zoom.getX());
+        assertEquals(2, input.getFrameCoalescedCount());
+    }
+
+    @Test
+    void historicEventsAreKeptWhenAsked() {
+        FXTouchInput input = input();
+        input.setOmitHistoricEvents(false);
+        move(input, 1, 1, 0, 1, 0);
+        move(input, 1, 2, 0, 1, 0);
+        input.queueScale(TouchEvent.Type.SCALE_MOVE, 0, 0, 2f, FXTouchInput.ZOOM_POINTER);
+        input.queueScale(TouchEvent.Type.SCALE_MOVE, 0, 0, 2f, FXTouchInput.ZOOM_POINTER);
+
+        List<TouchEvent> events = frame(input);
+        assertEquals(4, events.size());
+        assertEquals(2f, events.get(3).getScaleFactor());
+        assertEquals(0, input.getFrameCoalescedCount());
+    }
+
+    @Test
+    void eventsBeyondTheQueueCapacityAreDroppedAndCounted() {
+        FXTouchInput input = input();
+        move(input, 1, 0, 0, 0, 0);
+        for (int i = 1; i < FXTouchInput.QUEUE_CAPACITY + 10; i++) {
+            input.queue(TouchEvent.Type.DOWN, 100 + i, 0, 0, 0, 0, null);
+        }
+        move(input, 1, 3, 0, 3, 0); // merging into a waiting event needs no room.
+
+        List<TouchEvent> events = frame(input);
+        assertEquals(FXTouchInput.QUEUE_CAPACITY, events.size());
+        assertEquals(3f, events.get(0).getX());
+        assertEquals(10, input.getDroppedCount());
+        assertEquals(FXTouchInput.QUEUE_CAPACITY + 11, input.getFrameReceivedCount());
+
+        input.queue(TouchEvent.Type.UP, 1, 3, 0, 0, 0, null);
+        assertEquals(1, frame(input).size());
+        assertEquals(10, input.getDroppedCount()); // a running total.
+    }
+}
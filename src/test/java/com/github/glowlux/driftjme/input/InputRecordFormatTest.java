@@ -0,0 +1,82 @@
+package com.github.glowlux.driftjme.input;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class InputRecordFormatTest {
+
+    private static final long[] LONGS = {0, 1, 127, 128, 300, 16_383, 16_384, 1_000_000_000L, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+    private static final int[] INTS = {0, 1, -1, 63, -64, 64, -65, 1920, -1080, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    private static DataInputStream in(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    void varLongsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long value : LONGS) InputRecordFormat.writeVarLong(out, value);
+
+        DataInputStream in = in(bytes);
+        for (long value : LONGS) assertEquals(value, InputRecordFormat.readVarLong(in));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void varIntsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : INTS) InputRecordFormat.writeVarInt(out, value);
+
+        DataInputStream in = in(bytes);
+        for (int value : INTS) assertEquals(value, InputRecordFormat.readVarInt(in));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void signedVarIntsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : INTS) InputRecordFormat.writeSignedVarInt(out, value);
+
+        DataInputStream in = in(bytes);
+        for (int value : INTS) assertEquals(value, InputRecordFormat.readSignedVarInt(in));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void smallNumbersTakeOneByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        InputRecordFormat.writeVarLong(out, 127);
+        assertEquals(1, bytes.size());
+        InputRecordFormat.writeVarLong(out, 128);
+        assertEquals(3, bytes.size());
+
+        bytes.reset();
+        InputRecordFormat.writeSignedVarInt(out, -64); // zig-zag keeps small negatives small.
+        assertEquals(1, bytes.size());
+        InputRecordFormat.writeVarInt(out, -1); // without it they take the full width.
+        assertEquals(6, bytes.size());
+    }
+
+    @Test
+    void overlongNumbersAreRejected() {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        assertThrows(IOException.class, () -> InputRecordFormat.readVarLong(in));
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.glowlux.driftjme.input;
+
+import com.jme3.input.KeyInput;
+import com.jme3.input.MouseInput;
+import com.jme3.input.RawInputListener;
+import com.jme3.input.event.InputEvent;
+import com.jme3.input.event.JoyAxisEvent;
+import com.jme3.input.event.JoyButtonEvent;
+import com.jme3.input.event.KeyInputEvent;
+import com.jme3.input.event.MouseButtonEvent;
+import com.jme3.input.event.MouseMotionEvent;
+import com.jme3.input.event.TouchEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author glowlux
+ */
+class InputReplayTest {
+
+    /**
+     * Collects the events a replay delivers.
+     */
+    private static final class Collector implements RawInputListener {
+
+        final List<InputEvent> events = new ArrayList<>();
+
+        @Override
+        public void beginInput() {}
+
+        @Override
+        public void endInput() {}
+
+        @Override
+        public void onJoyAxisEvent(JoyAxisEvent evt) {}
+
+        @Override
+        public void onJoyButtonEvent(JoyButtonEvent evt) {}
+
+        @Override
+        public void onMouseMotionEvent(MouseMotionEvent evt) {
+            events.add(evt);
+        }
+
+        @Override
+        public void onMouseButtonEvent(MouseButtonEvent evt) {
+            events.add(evt);
+        }
+
+        @Override
+        public void onKeyEvent(KeyInputEvent evt) {
+            events.add(evt);
+        }
+
+        @Override
+        public void onTouchEvent(TouchEvent evt) {}
+
+        List<Integer> keysAndClear() {
+            List<Integer> keys = new ArrayList<>();
+            for (InputEvent event : events) keys.add(((KeyInputEvent) event).getKeyCode());
+            events.clear();
+            return keys;
+        }
+    }
+
+    private static KeyInputEvent key(int keyCode, long time) {
+        KeyInputEvent event = new KeyInputEvent(keyCode, '\0', true, false);
+        event.setTime(time);
+        return event;
+    }
+
+    private static InputReplay replay(ByteArrayOutputStream recording, Collector collector) throws IOException {
+        InputReplay replay = new InputReplay(new ByteArrayInputStream(recording.toByteArray()));
+        replay.getKeyInput().setInputListener(collector);
+        replay.getMouseInput().setInputListener(collector);
+        return replay;
+    }
+
+    private static void update(InputReplay replay) {
+        replay.getKeyInput().update();
+        replay.getMouseInput().update();
+    }
+
+    @Test
+    void eventsRoundTripThroughARecording() throws IOException {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        try (InputRecorder recorder = new InputRecorder(recording)) {
+            recorder.beginInput();
+            recorder.onKeyEvent(new KeyInputEvent(KeyInput.KEY_A, 'a', true, true));
+            recorder.onMouseMotionEvent(new MouseMotionEvent(640, -20, -3, 4, 120, -120));
+            recorder.onMouseButtonEvent(new MouseButtonEvent(MouseInput.BUTTON_RIGHT, true, 640, -20));
+            assertEquals(4, recorder.getRecordCount());
+        }
+
+        Collector collector = new Collector();
+        InputReplay replay = replay(recording, collector);
+        assertEquals(1, replay.getFrameCount());
+        assertEquals(3, replay.getEventCount());
+        update(replay);
+        assertTrue(replay.isFinished());
+        assertEquals(3, collector.events.size());
+
+        KeyInputEvent key = (KeyInputEvent) collector.events.get(0);
+        assertEquals(KeyInput.KEY_A, key.getKeyCode());
+        assertEquals('a', key.getKeyChar());
+        assertTrue(key.isPressed());
+        assertTrue(key.isRepeating());
+
+        MouseMotionEvent motion = (MouseMotionEvent) collector.events.get(1);
+        assertEquals(640, motion.getX());
+        assertEquals(-20, motion.getY());
+        assertEquals(-3, motion.getDX());
+        assertEquals(4, motion.getDY());
+        assertEquals(120, motion.getWheel());
+        assertEquals(-120, motion.getDeltaWheel());
+
+        MouseButtonEvent button = (MouseButtonEvent) collector.events.get(2);
+        assertEquals(MouseInput.BUTTON_RIGHT, button.getButtonIndex());
+        assertTrue(button.isPressed());
+        assertEquals(640, button.getX());
+        assertEquals(-20, button.getY());
+    }
+
+    @Test
+    void frameLockedDeliversOneRecordedFramePerUpdate() throws IOException {
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        try (InputRecorder recorder = new InputRecorder(recording)) {
+            recorder.beginInput();
+            recorder.onKeyEvent(key(KeyInput.KEY_A, 0));
+            recorder.beginInput();
+            recorder.beginInput(); // a frame without input.
+            recorder.onKeyEvent(key(KeyInput.KEY_B, 0));
+            recorder.onKeyEvent(key(KeyInput.KEY_C, 0));
+        }
+
+        Collector collector = new Collector();
+        InputReplay replay = replay(recording, collector);
+        assertEquals(3, replay.getFrameCount());
+        assertEquals(InputReplay.Mode.FRAME_LOCKED, replay.getMode());
+
+        update(replay);
+        assertEquals(Arrays.asList(KeyInput.KEY_A), collector.keysAndClear());
+        update(replay);
+        assertEquals(Arrays.asList(), collector.keysAndClear());
+        assertFalse(replay.isFinished());
+        update(replay);
+        assertEquals(Arrays.asList(KeyInput.KEY_B, KeyInput.KEY_C), collector.keysAndClear());
+        assertTrue(replay.isFinished());
+
+        replay.restart();
+        update(replay);
+        assertEquals(Arrays.asList(KeyInput.KEY_A), collector.keysAndClear());
+    }
+
+    @Test
+    void realtimeDeliversEventsAtTheirRecordedTimes() throws IOException, InterruptedException {
+        long delay = TimeUnit.MILLISECONDS.toNanos(200);
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        try (InputRecorder recorder = new InputRecorder(recording)) {
+            long start = System.nanoTime();
+            recorder.beginInput();
+            recorder.onKeyEvent(key(KeyInput.KEY_A, start)); // captured before the frame began, so due with it.
+            TimeUnit.NANOSECONDS.sleep(delay);
+            recorder.onKeyEvent(key(KeyInput.KEY_B, start + delay)); // at most the delay after the frame.
+        }
+
+        Collector collector = new Collector();
+        InputReplay replay = replay(recording, collector);
+        replay.setMode(InputReplay.Mode.REALTIME);
+        assertTrue(replay.getDurationNanos() <= delay);
+
+        update(replay);
+        assertEquals(Arrays.asList(KeyInput.KEY_A), collector.keysAndClear());
+        update(replay); // however many frames are rendered in the meantime.
+        update(replay);
+        assertEquals(Arrays.asList(), collector.keysAndClear());
+
+        TimeUnit.NANOSECONDS.sleep(delay + TimeUnit.MILLISECONDS.toNanos(50));
+        update(replay);
+        assertEquals(Arrays.asList(KeyInput.KEY_B), collector.keysAndClear());
+        assertTrue(replay.isFinished());
+    }
+}